@@ -16,6 +16,7 @@
 
 package io.vertx.starter;
 
+import io.netty.util.concurrent.EventExecutor;
 import io.vertx.starter.database.WikiDatabaseVerticle;
 import io.vertx.starter.http.HttpServerVerticle;
 import com.github.rjeschke.txtmark.Processor;
@@ -41,6 +42,10 @@ import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_INSTANCES;
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_WORKER;
+import static io.vertx.starter.http.HttpServerVerticle.CONFIG_HTTP_SERVER_INSTANCES;
+
 /**
  * 
  * @author nghiatc
@@ -123,8 +128,17 @@ public class MainVerticle extends AbstractVerticle {
     //<editor-fold defaultstate="collapsed" desc="Code Step7">
     @Override
     public void start(Promise<Void> promise) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        int eventLoops = eventLoopCount();
+        // One HTTP server per core, more instances than event loops would share them
+        int httpInstances = config().getInteger(CONFIG_HTTP_SERVER_INSTANCES, Math.min(cores, eventLoops));
+        // Worker instances of the database service, each one dispatches its share of the calls
+        int dbInstances = config().getInteger(CONFIG_WIKIDB_INSTANCES, cores);
+        boolean dbWorker = config().getBoolean(CONFIG_WIKIDB_WORKER, true);
+
         Promise<String> dbVerticleDeployment = Promise.promise();
-        vertx.deployVerticle(new WikiDatabaseVerticle(), dbVerticleDeployment);
+        vertx.deployVerticle(WikiDatabaseVerticle.class,
+                new DeploymentOptions().setInstances(dbInstances).setWorker(dbWorker).setConfig(config()), dbVerticleDeployment);
 
         dbVerticleDeployment.future().compose(id -> {
             System.out.println("id: " + id); // uuid: 4ce6db37-28e0-4938-bce8-a6f141c98573
@@ -132,18 +146,28 @@ public class MainVerticle extends AbstractVerticle {
             vertx.deployVerticle(
                     //"io.vertx.starter.HttpServerVerticle",   // A class name as a string is also an option to specify a verticle to deploy.
                     HttpServerVerticle.class,
-                    new DeploymentOptions().setInstances(2), // the number of instances to deploy = 2 HttpServerVerticle
+                    new DeploymentOptions().setInstances(httpInstances).setConfig(config()),
                     httpVerticleDeployment
             );
             return httpVerticleDeployment.future();
         }).setHandler(ar -> {
             if (ar.succeeded()) {
+                LOGGER.info("Wiki started: " + httpInstances + " HTTP server and " + dbInstances
+                        + (dbWorker ? " worker" : "") + " database verticle instances, " + cores + " cores, " + eventLoops + " event loops");
                 promise.complete();
             } else {
                 promise.fail(ar.cause());
             }
         });
     }
+    
+    private int eventLoopCount() {
+        int count = 0;
+        for (EventExecutor executor : vertx.nettyEventLoopGroup()) {
+            count++;
+        }
+        return count;
+    }
     //</editor-fold>
     
     
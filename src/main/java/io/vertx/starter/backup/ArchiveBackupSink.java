@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.backup;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Promise;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.file.AsyncFile;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.file.OpenOptions;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes the pages to a local gzip archive with one JSON page per line, e.g.
+ * {@code backups/wiki-20191016-093012345.ndjson.gz}.
+ *
+ * Pages are compressed and written one at a time through an {@link AsyncFile}, the page stream
+ * is paused while the file write queue is full. The archive is written under a {@code .part}
+ * name and only renamed once complete.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class ArchiveBackupSink implements BackupSink {
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmssSSS").withZone(ZoneOffset.UTC);
+
+    private final Vertx vertx;
+    private final String directory;
+
+    public ArchiveBackupSink(Vertx vertx, String directory) {
+        this.vertx = vertx;
+        this.directory = directory;
+    }
+
+    @Override
+    public void write(ReadStream<JsonObject> pages, boolean incremental, Handler<AsyncResult<String>> resultHandler) {
+        FileSystem fs = vertx.fileSystem();
+        String path = directory + File.separator + "wiki-" + FILE_TIMESTAMP.format(Instant.now())
+                + (incremental ? "-incremental" : "") + ".ndjson.gz";
+        String partPath = path + ".part";
+        Promise<String> result = Promise.promise();
+        result.future().setHandler(resultHandler);
+
+        fs.mkdirs(directory, mkdirs -> {
+            if (mkdirs.failed()) {
+                result.fail(new BackupException(500, "Could not create the backup directory", mkdirs.cause()));
+                return;
+            }
+            fs.open(partPath, new OpenOptions().setWrite(true).setCreate(true).setTruncateExisting(true), open -> {
+                if (open.failed()) {
+                    result.fail(new BackupException(500, "Could not create the backup archive", open.cause()));
+                    return;
+                }
+                AsyncFile file = open.result();
+                Compressor compressor = new Compressor();
+                Handler<Throwable> abort = err -> {
+                    pages.handler(null);
+                    compressor.close();
+                    file.close(close -> fs.delete(partPath, delete -> result.tryFail(new BackupException(500, "Could not write the backup archive", err))));
+                };
+                file.exceptionHandler(abort);
+                pages.exceptionHandler(abort);
+                pages.endHandler(end -> {
+                    file.write(compressor.finish());
+                    file.close(close -> {
+                        if (close.failed()) {
+                            abort.handle(close.cause());
+                            return;
+                        }
+                        fs.move(partPath, path, move -> {
+                            if (move.succeeded()) {
+                                result.tryComplete(path);
+                            } else {
+                                result.tryFail(new BackupException(500, "Could not write the backup archive", move.cause()));
+                            }
+                        });
+                    });
+                });
+                pages.handler(page -> {
+                    Buffer chunk = compressor.write(page.encode() + "\n");
+                    if (chunk.length() > 0) {
+                        file.write(chunk);
+                    }
+                    if (file.writeQueueFull()) {
+                        pages.pause();
+                        file.drainHandler(drain -> pages.resume());
+                    }
+                });
+            });
+        });
+    }
+
+    /*
+     * Gzip stream whose output is handed over after each write, so that only the deflater
+     * window and not the whole archive stays in memory.
+     */
+    private static final class Compressor {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private final GZIPOutputStream gzip;
+
+        Compressor() {
+            try {
+                gzip = new GZIPOutputStream(out, 64 * 1024);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        Buffer write(String text) {
+            try {
+                gzip.write(text.getBytes(StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return take();
+        }
+
+        Buffer finish() {
+            try {
+                gzip.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return take();
+        }
+
+        void close() {
+            try {
+                gzip.close();
+            } catch (IOException e) {
+                // Only releases the deflater
+            }
+        }
+
+        private Buffer take() {
+            Buffer chunk = Buffer.buffer(out.toByteArray());
+            out.reset();
+            return chunk;
+        }
+    }
+}
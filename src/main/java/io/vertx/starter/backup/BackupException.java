@@ -0,0 +1,40 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.backup;
+
+/**
+ * A backup that could not be written, with the HTTP status to answer.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class BackupException extends RuntimeException {
+    private final int statusCode;
+
+    public BackupException(int statusCode, String message) {
+        this(statusCode, message, null);
+    }
+
+    public BackupException(int statusCode, String message, Throwable cause) {
+        super(message, cause);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+}
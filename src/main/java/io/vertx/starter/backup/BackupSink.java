@@ -0,0 +1,41 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.backup;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+
+/**
+ * Destination of a wiki backup.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public interface BackupSink {
+
+    /**
+     * Write the pages ({@code id}, {@code name}, {@code content}, {@code modified}) of the stream,
+     * pausing it while the destination cannot keep up.
+     *
+     * @param pages the pages to back up, only the changed ones for an incremental backup
+     * @param incremental whether the pages are the changes since the previous backup
+     * @param resultHandler completed with the location of the backup, e.g. a URL or a file
+     */
+    void write(ReadStream<JsonObject> pages, boolean incremental, Handler<AsyncResult<String>> resultHandler);
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.backup;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import io.vertx.ext.web.client.HttpResponse;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.ext.web.codec.BodyCodec;
+
+/**
+ * Posts the pages as a public snippet on glot.io.
+ *
+ * The snippet API takes a single JSON document, so the pages are collected before the upload.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class GlotBackupSink implements BackupSink {
+    private final WebClient webClient;
+
+    public GlotBackupSink(Vertx vertx) {
+        this.webClient = WebClient.create(vertx, new WebClientOptions().setSsl(true).setUserAgent("vert-x3"));
+    }
+
+    @Override
+    public void write(ReadStream<JsonObject> pages, boolean incremental, Handler<AsyncResult<String>> resultHandler) {
+        JsonArray filesObject = new JsonArray();
+        pages.exceptionHandler(err -> resultHandler.handle(Future.failedFuture(err)));
+        pages.endHandler(end -> {
+            JsonObject payload = new JsonObject()
+                    .put("files", filesObject)
+                    .put("language", "plaintext")
+                    .put("title", incremental ? "vertx-wiki-incremental-backup" : "vertx-wiki-backup")
+                    .put("public", true);
+
+            webClient.post(443, "snippets.glot.io", "/snippets")
+                    .putHeader("Content-Type", "application/json")
+                    .as(BodyCodec.jsonObject())
+                    .sendJsonObject(payload, ar -> {
+                        if (ar.succeeded()) {
+                            HttpResponse<JsonObject> response = ar.result();
+                            if (response.statusCode() == 200) {
+                                resultHandler.handle(Future.succeededFuture("https://glot.io/snippets/" + response.body().getString("id")));
+                            } else {
+                                StringBuilder message = new StringBuilder()
+                                        .append("Could not backup the wiki: ")
+                                        .append(response.statusMessage());
+                                JsonObject body = response.body();
+                                if (body != null) {
+                                    message.append(System.getProperty("line.separator"))
+                                            .append(body.encodePrettily());
+                                }
+                                resultHandler.handle(Future.failedFuture(new BackupException(502, message.toString())));
+                            }
+                        } else {
+                            resultHandler.handle(Future.failedFuture(new BackupException(502, "HTTP Client error", ar.cause())));
+                        }
+                    });
+        });
+        pages.handler(page -> filesObject.add(new JsonObject()
+                .put("name", page.getString("name"))
+                .put("content", page.getString("content"))));
+    }
+}
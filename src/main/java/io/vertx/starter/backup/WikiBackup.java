@@ -0,0 +1,134 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.backup;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.starter.database.PageStream;
+import io.vertx.starter.database.WikiDatabaseService;
+import java.io.File;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Runs wiki backups into the configured {@link BackupSink}.
+ *
+ * The start time of the last successful backup is kept in a marker file of the backup
+ * directory, an incremental backup only streams the pages modified since then and falls back
+ * to a full backup when there is no marker yet. Deleted pages are not part of incremental
+ * backups, restoring needs the last full backup.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class WikiBackup {
+    private static final Logger LOGGER = LoggerFactory.getLogger(WikiBackup.class);
+
+    public static final String CONFIG_BACKUP_SINK = "backup.sink";
+    public static final String CONFIG_BACKUP_DIR = "backup.dir";
+
+    public static final String DEFAULT_BACKUP_SINK = "archive";
+    public static final String DEFAULT_BACKUP_DIR = "backups";
+
+    private static final String MARKER_FILE = "last-backup.json";
+    private static final int CHUNK_SIZE = 100;
+
+    private final Vertx vertx;
+    private final WikiDatabaseService dbService;
+    private final BackupSink sink;
+    private final String directory;
+    private final String markerPath;
+
+    public WikiBackup(Vertx vertx, WikiDatabaseService dbService, BackupSink sink, String directory) {
+        this.vertx = vertx;
+        this.dbService = dbService;
+        this.sink = sink;
+        this.directory = directory;
+        this.markerPath = directory + File.separator + MARKER_FILE;
+    }
+
+    /**
+     * Create the backup of the {@code backup.sink} configuration: {@code archive} (default) or {@code glot}.
+     */
+    public static WikiBackup create(Vertx vertx, WikiDatabaseService dbService, JsonObject config) {
+        String directory = config.getString(CONFIG_BACKUP_DIR, DEFAULT_BACKUP_DIR);
+        String sinkName = config.getString(CONFIG_BACKUP_SINK, DEFAULT_BACKUP_SINK);
+        BackupSink sink;
+        switch (sinkName) {
+            case "archive":
+                sink = new ArchiveBackupSink(vertx, directory);
+                break;
+            case "glot":
+                sink = new GlotBackupSink(vertx);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown backup sink: " + sinkName);
+        }
+        return new WikiBackup(vertx, dbService, sink, directory);
+    }
+
+    public void run(boolean incremental, Handler<AsyncResult<String>> resultHandler) {
+        long started = System.currentTimeMillis();
+        lastBackupTime(incremental, since -> {
+            sink.write(new PageStream(dbService, since, CHUNK_SIZE), since > 0, ar -> {
+                if (ar.failed()) {
+                    resultHandler.handle(ar);
+                    return;
+                }
+                JsonObject marker = new JsonObject()
+                        .put("time", started)
+                        .put("location", ar.result())
+                        .put("incremental", since > 0);
+                writeMarker(marker, write -> {
+                    if (write.failed()) {
+                        // The next incremental backup then starts from the previous marker, a superset of the changes
+                        LOGGER.warn("Could not write the backup marker " + markerPath, write.cause());
+                    }
+                    resultHandler.handle(Future.succeededFuture(ar.result()));
+                });
+            });
+        });
+    }
+
+    private void writeMarker(JsonObject marker, Handler<AsyncResult<Void>> handler) {
+        vertx.fileSystem().mkdirs(directory, mkdirs -> {
+            if (mkdirs.failed()) {
+                handler.handle(mkdirs);
+            } else {
+                vertx.fileSystem().writeFile(markerPath, marker.toBuffer(), handler);
+            }
+        });
+    }
+
+    private void lastBackupTime(boolean incremental, Handler<Long> handler) {
+        if (!incremental) {
+            handler.handle(0L);
+            return;
+        }
+        vertx.fileSystem().readFile(markerPath, read -> {
+            if (read.succeeded()) {
+                handler.handle(read.result().toJsonObject().getLong("time", 0L));
+            } else {
+                LOGGER.info("No previous backup marker, running a full backup");
+                handler.handle(0L);
+            }
+        });
+    }
+}
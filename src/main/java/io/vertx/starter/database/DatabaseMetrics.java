@@ -0,0 +1,88 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Service calls dispatched to each database verticle instance of this Vert.x instance.
+ *
+ * A snapshot is sent as a reply to any message on {@link #ADDRESS}:
+ * {@code {calls, instances: {<instance>: {calls, actions: {<action>: calls}}}}}.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class DatabaseMetrics implements Shareable {
+    public static final String ADDRESS = "wikidb.metrics";
+
+    private static final String SHARED_MAP_NAME = "wiki.database";
+    private static final String SHARED_METRICS_KEY = "metrics";
+
+    private final AtomicInteger instanceCount = new AtomicInteger();
+    private final Map<String, Map<String, LongAdder>> calls = new ConcurrentSkipListMap<>();
+
+    /**
+     * Get the metrics shared by all database verticles of this Vert.x instance.
+     */
+    public static DatabaseMetrics shared(Vertx vertx) {
+        LocalMap<String, DatabaseMetrics> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_METRICS_KEY, k -> new DatabaseMetrics());
+    }
+
+    /**
+     * Name a new service instance.
+     */
+    String register() {
+        String instance = "wikidb-" + instanceCount.getAndIncrement();
+        calls.put(instance, new ConcurrentHashMap<>());
+        return instance;
+    }
+
+    void record(String instance, String action) {
+        calls.get(instance).computeIfAbsent(action == null ? "unknown" : action, k -> new LongAdder()).increment();
+    }
+
+    public JsonObject snapshot() {
+        long total = 0;
+        JsonObject instances = new JsonObject();
+        for (Map.Entry<String, Map<String, LongAdder>> instance : calls.entrySet()) {
+            long instanceTotal = 0;
+            JsonObject actions = new JsonObject();
+            for (Map.Entry<String, LongAdder> action : instance.getValue().entrySet()) {
+                long count = action.getValue().sum();
+                actions.put(action.getKey(), count);
+                instanceTotal += count;
+            }
+            instances.put(instance.getKey(), new JsonObject()
+                    .put("calls", instanceTotal)
+                    .put("actions", actions));
+            total += instanceTotal;
+        }
+        return new JsonObject()
+                .put("calls", total)
+                .put("instances", instances);
+    }
+}
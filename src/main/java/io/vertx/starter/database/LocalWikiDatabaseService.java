@@ -0,0 +1,222 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+
+/**
+ * Proxy calling the service instances deployed in this Vert.x instance directly.
+ *
+ * A call runs on the context of the target instance, as it would when received from the event
+ * bus, and its result is handed back on the caller context as is: arguments and results are
+ * neither encoded nor copied. This is safe because the service builds fresh objects for each call
+ * and never looks at them again. Calls go round-robin over the local instances; when there is none,
+ * e.g. the database runs on another node of the cluster, they go through the event bus proxy.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class LocalWikiDatabaseService implements WikiDatabaseService {
+    private static final String SHARED_MAP_NAME = "wiki.database";
+    private static final String SHARED_SERVICES_KEY = "services:";
+
+    private final Vertx vertx;
+    private final Registry registry;
+    private final WikiDatabaseService remote;
+
+    LocalWikiDatabaseService(Vertx vertx, String address) {
+        this.vertx = vertx;
+        this.registry = registry(vertx, address);
+        this.remote = new WikiDatabaseServiceVertxEBProxy(vertx, address);
+    }
+
+    /**
+     * Make a service instance, running on the current context, callable without the event bus.
+     */
+    static void register(Vertx vertx, String address, String instance, WikiDatabaseService service) {
+        registry(vertx, address).targets.add(new Target(vertx.getOrCreateContext(), instance, service));
+    }
+
+    static void unregister(Vertx vertx, String address, WikiDatabaseService service) {
+        registry(vertx, address).targets.removeIf(target -> target.service == service);
+    }
+
+    private static Registry registry(Vertx vertx, String address) {
+        LocalMap<String, Registry> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_SERVICES_KEY + address, k -> new Registry());
+    }
+
+    private <T> void call(String action, BiConsumer<WikiDatabaseService, Handler<AsyncResult<T>>> call, Handler<AsyncResult<T>> resultHandler) {
+        Target target = registry.next();
+        if (target == null) {
+            call.accept(remote, resultHandler);
+            return;
+        }
+        DatabaseMetrics.shared(vertx).record(target.instance, action);
+        Context caller = vertx.getOrCreateContext();
+        target.context.runOnContext(v -> call.accept(target.service, ar -> caller.runOnContext(w -> resultHandler.handle(ar))));
+    }
+
+    @Override
+    public WikiDatabaseService fetchAllPages(Handler<AsyncResult<JsonArray>> resultHandler) {
+        call("fetchAllPages", WikiDatabaseService::fetchAllPages, resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPage(String name, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("fetchPage", (service, handler) -> service.fetchPage(name, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService createPage(String title, String markdown, Handler<AsyncResult<Void>> resultHandler) {
+        call("createPage", (service, handler) -> service.createPage(title, markdown, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService savePage(int id, String markdown, Handler<AsyncResult<Void>> resultHandler) {
+        call("savePage", (service, handler) -> service.savePage(id, markdown, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService createPages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler) {
+        call("createPages", (service, handler) -> service.createPages(pages, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService savePages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler) {
+        call("savePages", (service, handler) -> service.savePages(pages, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService deletePage(int id, Handler<AsyncResult<Void>> resultHandler) {
+        call("deletePage", (service, handler) -> service.deletePage(id, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchAllPagesData(Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        call("fetchAllPagesData", WikiDatabaseService::fetchAllPagesData, resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPageById(int id, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("fetchPageById", (service, handler) -> service.fetchPageById(id, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchAllPageSummaries(Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        call("fetchAllPageSummaries", WikiDatabaseService::fetchAllPageSummaries, resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPageSummaries(String after, int limit, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("fetchPageSummaries", (service, handler) -> service.fetchPageSummaries(after, limit, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPageSummariesWithPrefix(String prefix, int limit, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        call("fetchPageSummariesWithPrefix", (service, handler) -> service.fetchPageSummariesWithPrefix(prefix, limit, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService openPagesCursor(long modifiedSince, int chunkSize, Handler<AsyncResult<String>> resultHandler) {
+        call("openPagesCursor", (service, handler) -> service.openPagesCursor(modifiedSince, chunkSize, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPagesChunk(String cursor, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("fetchPagesChunk", (service, handler) -> service.fetchPagesChunk(cursor, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService closePagesCursor(String cursor, Handler<AsyncResult<Void>> resultHandler) {
+        call("closePagesCursor", (service, handler) -> service.closePagesCursor(cursor, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService searchPages(String query, int offset, int limit, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("searchPages", (service, handler) -> service.searchPages(query, offset, limit, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPageRevisions(int id, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        call("fetchPageRevisions", (service, handler) -> service.fetchPageRevisions(id, handler), resultHandler);
+        return this;
+    }
+
+    @Override
+    public WikiDatabaseService fetchPageRevision(int id, int version, Handler<AsyncResult<JsonObject>> resultHandler) {
+        call("fetchPageRevision", (service, handler) -> service.fetchPageRevision(id, version, handler), resultHandler);
+        return this;
+    }
+
+    private static final class Registry implements Shareable {
+        private final List<Target> targets = new CopyOnWriteArrayList<>();
+        private final AtomicInteger index = new AtomicInteger();
+
+        Target next() {
+            int size = targets.size();
+            if (size == 0) {
+                return null;
+            }
+            try {
+                return targets.get(Math.floorMod(index.getAndIncrement(), size));
+            } catch (IndexOutOfBoundsException e) {
+                // An instance was undeployed meanwhile
+                return next();
+            }
+        }
+    }
+
+    private static final class Target {
+        private final Context context;
+        private final String instance;
+        private final WikiDatabaseService service;
+
+        Target(Context context, String instance, WikiDatabaseService service) {
+            this.context = context;
+            this.instance = instance;
+            this.service = service;
+        }
+    }
+}
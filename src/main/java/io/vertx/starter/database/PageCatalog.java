@@ -0,0 +1,123 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ids and names of all the pages, sorted by name, so that listings and name completion never
+ * query the database.
+ *
+ * The catalog is loaded once when the first service instance starts, then the service keeps it
+ * current as pages are written. It only sees the writes of the service instances of this Vert.x
+ * instance, which own the database.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class PageCatalog implements Shareable {
+    private static final String SHARED_MAP_NAME = "wiki.database";
+    private static final String SHARED_CATALOG_KEY = "catalog";
+
+    private final NavigableMap<String, Integer> byName = new ConcurrentSkipListMap<>();
+    private final Map<Integer, String> byId = new ConcurrentHashMap<>();
+    private final AtomicBoolean opened = new AtomicBoolean();
+
+    /**
+     * Get the catalog shared by all service instances of this Vert.x instance.
+     */
+    static PageCatalog shared(Vertx vertx) {
+        LocalMap<String, PageCatalog> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_CATALOG_KEY, k -> new PageCatalog());
+    }
+
+    /**
+     * True for the first caller only, who has to load the catalog.
+     */
+    boolean markOpened() {
+        return opened.compareAndSet(false, true);
+    }
+
+    /*
+     * Writers hold the lock so that both maps always agree, readers only use the sorted one.
+     */
+    synchronized void put(int id, String name) {
+        String previous = byId.put(id, name);
+        if (previous != null && !previous.equals(name)) {
+            byName.remove(previous, id);
+        }
+        byName.put(name, id);
+    }
+
+    synchronized void remove(int id) {
+        String name = byId.remove(id);
+        if (name != null) {
+            byName.remove(name, id);
+        }
+    }
+
+    JsonArray names() {
+        return new JsonArray(new ArrayList<>(byName.keySet()));
+    }
+
+    List<JsonObject> summaries() {
+        return summaries(byName, Integer.MAX_VALUE);
+    }
+
+    /**
+     * At most {@code limit} pages after the {@code after} name, {@code next} is set when more follow.
+     */
+    JsonObject summariesAfter(String after, int limit) {
+        NavigableMap<String, Integer> tail = after == null ? byName : byName.tailMap(after, false);
+        List<JsonObject> pages = summaries(tail, limit + 1);
+        JsonObject response = new JsonObject();
+        if (pages.size() > limit) {
+            pages.remove(limit);
+            response.put("next", pages.get(limit - 1).getString("name"));
+        }
+        return response.put("pages", new JsonArray(pages));
+    }
+
+    List<JsonObject> summariesWithPrefix(String prefix, int limit) {
+        // Names starting with the prefix sort between the prefix and the prefix followed by the highest char
+        return summaries(byName.subMap(prefix, true, prefix + Character.MAX_VALUE, false), limit);
+    }
+
+    private static List<JsonObject> summaries(NavigableMap<String, Integer> pages, int limit) {
+        List<JsonObject> summaries = new ArrayList<>();
+        for (Map.Entry<String, Integer> page : pages.entrySet()) {
+            if (summaries.size() == limit) {
+                break;
+            }
+            summaries.add(new JsonObject()
+                    .put("id", page.getValue())
+                    .put("name", page.getKey()));
+        }
+        return summaries;
+    }
+}
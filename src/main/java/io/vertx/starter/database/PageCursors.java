@@ -0,0 +1,263 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Context;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.SQLRowStream;
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Open row cursors of the streaming page API.
+ *
+ * A cursor holds a database connection and reads rows from it only when a chunk is asked for,
+ * it is released once exhausted, closed, or left idle longer than the timeout.
+ *
+ * The registry is shared by all the database service instances of this Vert.x instance, so a
+ * chunk can be asked to any of them. The connection and row stream of a cursor are only used from
+ * the context that opened it, the calls of the other instances hop to that context and back.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class PageCursors implements Shareable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageCursors.class);
+
+    private static final String SHARED_MAP_NAME = "wiki.database";
+    private static final String SHARED_CURSORS_KEY = "cursors";
+
+    private final Vertx vertx;
+    private final long idleTimeout;
+    private final int maxOpen;
+    private final Map<String, Cursor> cursors = new ConcurrentHashMap<>();
+    // Open cursors and the ones being opened, a slot is taken before their connection
+    private final AtomicInteger slots = new AtomicInteger();
+
+    PageCursors(Vertx vertx, long idleTimeout, int maxOpen) {
+        this.vertx = vertx;
+        this.idleTimeout = idleTimeout;
+        this.maxOpen = maxOpen;
+    }
+
+    /**
+     * Get the registry shared by all service instances of this Vert.x instance, the first caller configures it.
+     */
+    static PageCursors shared(Vertx vertx, long idleTimeout, int maxOpen) {
+        LocalMap<String, PageCursors> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_CURSORS_KEY, k -> new PageCursors(vertx, idleTimeout, maxOpen));
+    }
+
+    /**
+     * Take a slot for a cursor about to be opened, false when they are all taken. The slot is given
+     * back with {@link #unreserve} when the cursor cannot be opened, or once it is released.
+     */
+    boolean reserve() {
+        for (int taken = slots.get(); taken < maxOpen; taken = slots.get()) {
+            if (slots.compareAndSet(taken, taken + 1)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    void unreserve() {
+        slots.decrementAndGet();
+    }
+
+    /**
+     * Register a cursor in a slot taken with {@link #reserve}.
+     */
+    String open(SQLConnection connection, SQLRowStream stream, int chunkSize) {
+        Cursor cursor = new Cursor(UUID.randomUUID().toString(), connection, stream, chunkSize);
+        cursors.put(cursor.id, cursor);
+        cursor.idle();
+        return cursor.id;
+    }
+
+    void fetch(String id, Handler<AsyncResult<JsonObject>> handler) {
+        Cursor cursor = cursors.get(id);
+        if (cursor == null) {
+            handler.handle(Future.failedFuture(new NoSuchElementException("Unknown or expired cursor: " + id)));
+        } else {
+            Context caller = vertx.getOrCreateContext();
+            if (caller == cursor.owner) {
+                cursor.fetch(handler);
+            } else {
+                cursor.owner.runOnContext(v -> cursor.fetch(ar -> caller.runOnContext(w -> handler.handle(ar))));
+            }
+        }
+    }
+
+    void close(String id) {
+        Cursor cursor = remove(id);
+        if (cursor != null) {
+            if (vertx.getOrCreateContext() == cursor.owner) {
+                cursor.release();
+            } else {
+                cursor.owner.runOnContext(v -> cursor.release());
+            }
+        }
+    }
+
+    private Cursor remove(String id) {
+        Cursor cursor = cursors.remove(id);
+        if (cursor != null) {
+            unreserve();
+        }
+        return cursor;
+    }
+
+    private final class Cursor {
+        private final String id;
+        private final Context owner;
+        private final SQLConnection connection;
+        private final SQLRowStream stream;
+        private final int chunkSize;
+        private JsonArray pages = new JsonArray();
+        private Handler<AsyncResult<JsonObject>> pending;
+        private Throwable failure;
+        private boolean ended;
+        private boolean released;
+        private long timerId = -1;
+
+        Cursor(String id, SQLConnection connection, SQLRowStream stream, int chunkSize) {
+            this.id = id;
+            this.owner = vertx.getOrCreateContext();
+            this.connection = connection;
+            this.stream = stream;
+            this.chunkSize = chunkSize;
+            // No demand until the first chunk is asked for, the driver only prefetches one fetch size
+            stream.pause();
+            stream.exceptionHandler(this::failed);
+            stream.endHandler(v -> end());
+            stream.resultSetClosedHandler(v -> {
+                // The row stream pauses itself once the result set is read, dropping the demand of
+                // a fetch in progress. The last rows are already in memory: take them all, and end
+                // now if none is left in the stream
+                stream.resume();
+                stream.endHandler(w -> end());
+            });
+            stream.handler(row -> {
+                pages.add(new JsonObject()
+                        .put("id", row.getInteger(0))
+                        .put("name", row.getString(1))
+                        .put("content", row.getString(2))
+                        .put("modified", row.getLong(3)));
+                if (pages.size() >= this.chunkSize) {
+                    reply();
+                }
+            });
+        }
+
+        void fetch(Handler<AsyncResult<JsonObject>> handler) {
+            if (pending != null) {
+                handler.handle(Future.failedFuture(new IllegalStateException("A chunk is already being fetched")));
+                return;
+            }
+            vertx.cancelTimer(timerId);
+            pending = handler;
+            if (failure != null) {
+                remove(id);
+                pending = null;
+                handler.handle(Future.failedFuture(failure));
+            } else if (ended || pages.size() >= chunkSize) {
+                reply();
+            } else {
+                stream.fetch(chunkSize - pages.size());
+            }
+        }
+
+        private void end() {
+            if (!ended) {
+                ended = true;
+                reply();
+            }
+        }
+
+        private void reply() {
+            Handler<AsyncResult<JsonObject>> handler = pending;
+            if (handler == null) {
+                return;
+            }
+            pending = null;
+            JsonArray chunkPages = pages;
+            if (pages.size() > chunkSize) {
+                chunkPages = new JsonArray(new ArrayList<>(pages.getList().subList(0, chunkSize)));
+                pages = new JsonArray(new ArrayList<>(pages.getList().subList(chunkSize, pages.size())));
+            } else {
+                pages = new JsonArray();
+            }
+            boolean done = ended && pages.isEmpty();
+            JsonObject chunk = new JsonObject()
+                    .put("pages", chunkPages)
+                    .put("done", done);
+            if (done) {
+                close(id);
+            } else {
+                idle();
+            }
+            handler.handle(Future.succeededFuture(chunk));
+        }
+
+        private void failed(Throwable err) {
+            LOGGER.error("Page cursor error", err);
+            release();
+            Handler<AsyncResult<JsonObject>> handler = pending;
+            if (handler == null) {
+                // Reported to the next fetch
+                failure = err;
+                idle();
+            } else {
+                pending = null;
+                remove(id);
+                handler.handle(Future.failedFuture(err));
+            }
+        }
+
+        private void idle() {
+            timerId = vertx.setTimer(idleTimeout, tid -> {
+                if (remove(id) != null) {
+                    LOGGER.warn("Closing page cursor {} idle for {} ms", id, idleTimeout);
+                    release();
+                }
+            });
+        }
+
+        private void release() {
+            vertx.cancelTimer(timerId);
+            if (!released) {
+                released = true;
+                stream.close(ar -> connection.close());
+            }
+        }
+    }
+}
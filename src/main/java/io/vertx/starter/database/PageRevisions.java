@@ -0,0 +1,130 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.json.JsonArray;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Encoding of the page revisions stored in the Revisions table.
+ *
+ * A revision is either a snapshot, the whole content, or a forward delta from the previous
+ * revision: the length of the common prefix and suffix and the text replacing what lies between.
+ * Both are deflated and stored as base64. A snapshot is taken every few revisions, so rebuilding
+ * any revision applies a bounded number of deltas to the closest snapshot before it.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class PageRevisions {
+
+    private PageRevisions() {
+    }
+
+    static String snapshot(String content) {
+        return encode(out -> out.write(content.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    static String delta(String from, String to) {
+        int max = Math.min(from.length(), to.length());
+        int prefix = 0;
+        while (prefix < max && from.charAt(prefix) == to.charAt(prefix)) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < max - prefix && from.charAt(from.length() - suffix - 1) == to.charAt(to.length() - suffix - 1)) {
+            suffix++;
+        }
+        // Never cut a surrogate pair, the replaced text is stored as UTF-8
+        if (prefix > 0 && Character.isHighSurrogate(to.charAt(prefix - 1))) {
+            prefix--;
+        }
+        if (suffix > 0 && Character.isLowSurrogate(to.charAt(to.length() - suffix))) {
+            suffix--;
+        }
+        int keptPrefix = prefix;
+        int keptSuffix = suffix;
+        return encode(out -> {
+            out.writeInt(keptPrefix);
+            out.writeInt(keptSuffix);
+            out.write(to.substring(keptPrefix, to.length() - keptSuffix).getBytes(StandardCharsets.UTF_8));
+        });
+    }
+
+    /**
+     * Rebuild a revision from the rows ({@code Version}, {@code Snapshot}, {@code Data}) starting at
+     * its closest snapshot, in version order.
+     */
+    static String restore(List<JsonArray> revisions) {
+        if (revisions.isEmpty() || !revisions.get(0).getBoolean(1)) {
+            throw new IllegalArgumentException("A revision is rebuilt from a snapshot");
+        }
+        String content = new String(decode(revisions.get(0).getString(2)), StandardCharsets.UTF_8);
+        for (JsonArray revision : revisions.subList(1, revisions.size())) {
+            content = revision.getBoolean(1)
+                    ? new String(decode(revision.getString(2)), StandardCharsets.UTF_8)
+                    : apply(content, revision.getString(2));
+        }
+        return content;
+    }
+
+    static String apply(String from, String delta) {
+        ByteBuffer data = ByteBuffer.wrap(decode(delta));
+        int prefix = data.getInt();
+        int suffix = data.getInt();
+        return from.substring(0, prefix)
+                + StandardCharsets.UTF_8.decode(data)
+                + from.substring(from.length() - suffix);
+    }
+
+    private static String encode(Writer writer) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(new DeflaterOutputStream(bytes))) {
+            writer.write(out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return Base64.getEncoder().encodeToString(bytes.toByteArray());
+    }
+
+    private static byte[] decode(String data) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (InflaterInputStream in = new InflaterInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(data)))) {
+            byte[] buffer = new byte[4096];
+            for (int read = in.read(buffer); read != -1; read = in.read(buffer)) {
+                bytes.write(buffer, 0, read);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private interface Writer {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
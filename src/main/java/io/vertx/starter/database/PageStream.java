@@ -0,0 +1,184 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.database;
+
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.streams.ReadStream;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Reads the pages through a {@link WikiDatabaseService} cursor, one chunk at a time.
+ *
+ * The next chunk is only asked for once the previous one has been consumed, so at most one
+ * chunk of pages is held in memory whatever the size of the wiki. Pausing the stream stops
+ * fetching, {@link #close()} releases the cursor early.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class PageStream implements ReadStream<JsonObject> {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageStream.class);
+
+    private final WikiDatabaseService dbService;
+    private final long modifiedSince;
+    private final int chunkSize;
+    private final Deque<JsonObject> queue = new ArrayDeque<>();
+    private String cursor;
+    private long demand = Long.MAX_VALUE;
+    private boolean fetching;
+    private boolean done;
+    private boolean closed;
+    private Handler<JsonObject> handler;
+    private Handler<Void> endHandler;
+    private Handler<Throwable> exceptionHandler;
+
+    public PageStream(WikiDatabaseService dbService, int chunkSize) {
+        this(dbService, 0, chunkSize);
+    }
+
+    /**
+     * Only read the pages modified after {@code modifiedSince} (epoch millis).
+     */
+    public PageStream(WikiDatabaseService dbService, long modifiedSince, int chunkSize) {
+        this.dbService = dbService;
+        this.modifiedSince = modifiedSince;
+        this.chunkSize = chunkSize;
+    }
+
+    @Override
+    public PageStream exceptionHandler(Handler<Throwable> handler) {
+        this.exceptionHandler = handler;
+        return this;
+    }
+
+    @Override
+    public PageStream handler(Handler<JsonObject> handler) {
+        this.handler = handler;
+        if (handler == null) {
+            close();
+        } else {
+            drain();
+        }
+        return this;
+    }
+
+    @Override
+    public PageStream pause() {
+        demand = 0;
+        return this;
+    }
+
+    @Override
+    public PageStream resume() {
+        return fetch(Long.MAX_VALUE);
+    }
+
+    @Override
+    public PageStream fetch(long amount) {
+        demand += amount;
+        if (demand < 0) {
+            demand = Long.MAX_VALUE;
+        }
+        drain();
+        return this;
+    }
+
+    @Override
+    public PageStream endHandler(Handler<Void> endHandler) {
+        this.endHandler = endHandler;
+        return this;
+    }
+
+    /**
+     * Stop reading and release the cursor.
+     */
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        if (cursor != null && !done) {
+            dbService.closePagesCursor(cursor, ar -> {
+            });
+        }
+    }
+
+    private void drain() {
+        while (!closed && handler != null && demand > 0 && !queue.isEmpty()) {
+            if (demand != Long.MAX_VALUE) {
+                demand--;
+            }
+            handler.handle(queue.poll());
+        }
+        if (closed || handler == null || demand == 0 || fetching || !queue.isEmpty()) {
+            return;
+        }
+        if (done) {
+            closed = true;
+            if (endHandler != null) {
+                endHandler.handle(null);
+            }
+            return;
+        }
+        fetching = true;
+        if (cursor == null) {
+            dbService.openPagesCursor(modifiedSince, chunkSize, ar -> {
+                if (ar.failed()) {
+                    fail(ar.cause());
+                    return;
+                }
+                cursor = ar.result();
+                if (closed) {
+                    dbService.closePagesCursor(cursor, v -> {
+                    });
+                } else {
+                    fetchChunk();
+                }
+            });
+        } else {
+            fetchChunk();
+        }
+    }
+
+    private void fetchChunk() {
+        dbService.fetchPagesChunk(cursor, ar -> {
+            fetching = false;
+            if (ar.failed()) {
+                fail(ar.cause());
+                return;
+            }
+            done = ar.result().getBoolean("done", false);
+            ar.result().getJsonArray("pages").forEach(page -> queue.add((JsonObject) page));
+            drain();
+        });
+    }
+
+    private void fail(Throwable err) {
+        fetching = false;
+        close();
+        if (exceptionHandler != null) {
+            exceptionHandler.handle(err);
+        } else {
+            LOGGER.error("Page stream error", err);
+        }
+    }
+}
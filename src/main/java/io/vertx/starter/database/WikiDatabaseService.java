@@ -28,6 +28,7 @@ import io.vertx.core.json.JsonObject;
 //import io.vertx.reactivex.ext.jdbc.JDBCClient;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.starter.database.WikiDatabaseVerticle.SqlQuery;
+import io.vertx.starter.markdown.MarkdownRenderer;
 import java.util.HashMap;
 import java.util.List;
 
@@ -40,8 +41,8 @@ import java.util.List;
 @VertxGen
 public interface WikiDatabaseService {
     @GenIgnore
-    static WikiDatabaseService create(JDBCClient dbClient, HashMap<SqlQuery, String> sqlQueries, Handler<AsyncResult<WikiDatabaseService>> readyHandler) {
-        return new WikiDatabaseServiceImpl(dbClient, sqlQueries, readyHandler);
+    static WikiDatabaseService create(Vertx vertx, JDBCClient dbClient, HashMap<SqlQuery, String> sqlQueries, MarkdownRenderer renderer, JsonObject config, Handler<AsyncResult<WikiDatabaseService>> readyHandler) {
+        return new WikiDatabaseServiceImpl(vertx, dbClient, sqlQueries, renderer, config, readyHandler);
     }
     
     @GenIgnore
@@ -49,6 +50,15 @@ public interface WikiDatabaseService {
         return new WikiDatabaseServiceVertxEBProxy(vertx, address);
     }
     
+    /**
+     * Create a proxy calling the service instances of this Vert.x instance directly, without
+     * copying arguments and results through the event bus, and the event bus proxy otherwise.
+     */
+    @GenIgnore
+    static WikiDatabaseService createLocalProxy(Vertx vertx, String address) {
+        return new LocalWikiDatabaseService(vertx, address);
+    }
+    
     @Fluent
     WikiDatabaseService fetchAllPages(Handler<AsyncResult<JsonArray>> resultHandler);
 
@@ -61,6 +71,19 @@ public interface WikiDatabaseService {
     @Fluent
     WikiDatabaseService savePage(int id, String markdown, Handler<AsyncResult<Void>> resultHandler);
 
+    /**
+     * Create pages ({@code name}, {@code markdown}) in one transaction: either all or none are created.
+     */
+    @Fluent
+    WikiDatabaseService createPages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler);
+
+    /**
+     * Save pages ({@code id}, {@code markdown}) in one transaction: either all or none are saved, the
+     * batch fails if one of the pages does not exist.
+     */
+    @Fluent
+    WikiDatabaseService savePages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler);
+
     @Fluent
     WikiDatabaseService deletePage(int id, Handler<AsyncResult<Void>> resultHandler);
     
@@ -70,4 +93,66 @@ public interface WikiDatabaseService {
     @Fluent
     WikiDatabaseService fetchPageById(int id, Handler<AsyncResult<JsonObject>> resultHandler);
     
+    /**
+     * Fetch the summary ({@code id}, {@code name}) of every page ordered by name, without loading the content.
+     */
+    @Fluent
+    WikiDatabaseService fetchAllPageSummaries(Handler<AsyncResult<List<JsonObject>>> resultHandler);
+    
+    /**
+     * Fetch at most {@code limit} page summaries ({@code id}, {@code name}) ordered by name,
+     * starting after the {@code after} name ({@code null} for the first page).
+     * The result holds a {@code pages} array and, when more pages follow, the {@code next} cursor.
+     */
+    @Fluent
+    WikiDatabaseService fetchPageSummaries(String after, int limit, Handler<AsyncResult<JsonObject>> resultHandler);
+    
+    /**
+     * Fetch at most {@code limit} page summaries ({@code id}, {@code name}) whose name starts with
+     * {@code prefix}, ordered by name.
+     */
+    @Fluent
+    WikiDatabaseService fetchPageSummariesWithPrefix(String prefix, int limit, Handler<AsyncResult<List<JsonObject>>> resultHandler);
+    
+    /**
+     * Open a cursor over the pages ({@code id}, {@code name}, {@code content}, {@code modified}) modified
+     * after {@code modifiedSince} (epoch millis, 0 for all pages) and get its identifier.
+     * Rows are only read from the database as chunks are fetched, see {@link PageStream} for a
+     * {@link io.vertx.core.streams.ReadStream} on top of it.
+     */
+    @Fluent
+    WikiDatabaseService openPagesCursor(long modifiedSince, int chunkSize, Handler<AsyncResult<String>> resultHandler);
+    
+    /**
+     * Fetch the next chunk of a cursor as a {@code pages} array, {@code done} is true for the last
+     * chunk and the cursor is then closed.
+     */
+    @Fluent
+    WikiDatabaseService fetchPagesChunk(String cursor, Handler<AsyncResult<JsonObject>> resultHandler);
+    
+    @Fluent
+    WikiDatabaseService closePagesCursor(String cursor, Handler<AsyncResult<Void>> resultHandler);
+    
+    /**
+     * Search the page names and contents, best matches first. The result holds the {@code total}
+     * number of matching pages and the {@code results} ({@code id}, {@code name}, {@code score})
+     * after the {@code offset} first ones, at most {@code limit}.
+     */
+    @Fluent
+    WikiDatabaseService searchPages(String query, int offset, int limit, Handler<AsyncResult<JsonObject>> resultHandler);
+    
+    /**
+     * Fetch the revisions ({@code version}, {@code modified}, {@code snapshot}, {@code size}) kept
+     * for a page, latest first. {@code size} is the stored size of the revision.
+     */
+    @Fluent
+    WikiDatabaseService fetchPageRevisions(int id, Handler<AsyncResult<List<JsonObject>>> resultHandler);
+    
+    /**
+     * Rebuild a revision ({@code id}, {@code version}, {@code modified}, {@code content}) of a page,
+     * {@code found} is false when it is not kept.
+     */
+    @Fluent
+    WikiDatabaseService fetchPageRevision(int id, int version, Handler<AsyncResult<JsonObject>> resultHandler);
+    
 }
@@ -21,17 +21,33 @@ package io.vertx.starter.database;
 import io.vertx.core.AsyncResult;
 import io.vertx.core.Future;
 import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.sql.ResultSet;
 import io.vertx.ext.sql.SQLConnection;
+import io.vertx.ext.sql.SQLRowStream;
 //import io.vertx.reactivex.SingleHelper;
 //import io.vertx.reactivex.ext.jdbc.JDBCClient;
 //import io.vertx.reactivex.ext.sql.SQLClientHelper;
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_CURSOR_IDLE_TIMEOUT;
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_CURSOR_MAX_OPEN;
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_REVISIONS_SNAPSHOT_INTERVAL;
 import io.vertx.starter.database.WikiDatabaseVerticle.SqlQuery;
+import io.vertx.starter.markdown.MarkdownRenderer;
+import io.vertx.starter.search.SearchIndex;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -43,19 +59,163 @@ import org.slf4j.LoggerFactory;
  */
 public class WikiDatabaseServiceImpl implements WikiDatabaseService {
     private static final Logger LOGGER = LoggerFactory.getLogger(WikiDatabaseServiceImpl.class);
+    private static final long DEFAULT_CURSOR_IDLE_TIMEOUT = 60000;
+    private static final int DEFAULT_CURSOR_MAX_OPEN = 8;
+    private static final String SCHEMA_LOCK = "wikidb.schema";
+    private static final long SCHEMA_LOCK_TIMEOUT = 300000;
+    private static final int DEFAULT_REVISIONS_SNAPSHOT_INTERVAL = 20;
+    private static final int SAVE_ATTEMPTS = 3;
 
     private final HashMap<SqlQuery, String> sqlQueries;
     private final JDBCClient dbClient;
+    private final MarkdownRenderer renderer;
+    private final PageCursors cursors;
+    private final PageCatalog catalog;
+    private final SearchIndex searchIndex;
+    private final int snapshotInterval;
+    private final Vertx vertx;
 
-    WikiDatabaseServiceImpl(JDBCClient dbClient, HashMap<SqlQuery, String> sqlQueries, Handler<AsyncResult<WikiDatabaseService>> readyHandler) {
+    WikiDatabaseServiceImpl(Vertx vertx, JDBCClient dbClient, HashMap<SqlQuery, String> sqlQueries, MarkdownRenderer renderer, JsonObject config, Handler<AsyncResult<WikiDatabaseService>> readyHandler) {
+        this.vertx = vertx;
         this.dbClient = dbClient;
         this.sqlQueries = sqlQueries;
+        this.renderer = renderer;
+        this.cursors = PageCursors.shared(vertx,
+                config.getLong(CONFIG_WIKIDB_CURSOR_IDLE_TIMEOUT, DEFAULT_CURSOR_IDLE_TIMEOUT),
+                config.getInteger(CONFIG_WIKIDB_CURSOR_MAX_OPEN, DEFAULT_CURSOR_MAX_OPEN));
+        this.catalog = PageCatalog.shared(vertx);
+        this.searchIndex = SearchIndex.shared(vertx, config);
+        this.snapshotInterval = Math.max(1, config.getInteger(CONFIG_WIKIDB_REVISIONS_SNAPSHOT_INTERVAL, DEFAULT_REVISIONS_SNAPSHOT_INTERVAL));
 
 //        SQLClientHelper.usingConnectionSingle(this.dbClient, conn -> conn
 //                .rxExecute(sqlQueries.get(SqlQuery.CREATE_PAGES_TABLE))
 //                .andThen(Single.just(this))
 //        );
         
+        // Service instances deployed together would otherwise race on the schema migration
+        vertx.sharedData().getLocalLockWithTimeout(SCHEMA_LOCK, SCHEMA_LOCK_TIMEOUT, lock -> {
+            if (lock.failed()) {
+                LOGGER.error("Could not lock the database schema", lock.cause());
+                readyHandler.handle(Future.failedFuture(lock.cause()));
+                return;
+            }
+            prepareDatabase(prepared -> {
+                if (prepared.failed()) {
+                    lock.result().release();
+                    readyHandler.handle(Future.failedFuture(prepared.cause()));
+                    return;
+                }
+                loadCatalog(catalogued -> {
+                    if (catalogued.failed()) {
+                        lock.result().release();
+                        LOGGER.error("Page catalog loading error", catalogued.cause());
+                        readyHandler.handle(Future.failedFuture(catalogued.cause()));
+                        return;
+                    }
+                    openSearchIndex(ready -> {
+                        lock.result().release();
+                        if (ready.succeeded()) {
+                            readyHandler.handle(Future.succeededFuture(this));
+                        } else {
+                            LOGGER.error("Search index preparation error", ready.cause());
+                            readyHandler.handle(Future.failedFuture(ready.cause()));
+                        }
+                    });
+                });
+            });
+        });
+    }
+    
+    private void loadCatalog(Handler<AsyncResult<Void>> handler) {
+        if (!catalog.markOpened()) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        dbClient.query(sqlQueries.get(SqlQuery.ALL_PAGE_SUMMARIES), fetch -> {
+            if (fetch.succeeded()) {
+                fetch.result().getResults().forEach(row -> catalog.put(row.getInteger(0), row.getString(1)));
+                handler.handle(Future.succeededFuture());
+            } else {
+                handler.handle(Future.failedFuture(fetch.cause()));
+            }
+        });
+    }
+    
+    /*
+     * The first service instance loads the saved search index and indexes again the pages changed
+     * since it was saved.
+     */
+    private void openSearchIndex(Handler<AsyncResult<Void>> handler) {
+        if (!searchIndex.markOpened()) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        vertx.<Void>executeBlocking(promise -> {
+            searchIndex.load();
+            promise.complete();
+        }, load -> dbClient.query(sqlQueries.get(SqlQuery.PAGE_VERSIONS), versions -> {
+            if (versions.failed()) {
+                handler.handle(Future.failedFuture(versions.cause()));
+                return;
+            }
+            Map<Integer, Long> indexed = searchIndex.versions();
+            Set<Integer> stale = new HashSet<>();
+            long oldestStale = Long.MAX_VALUE;
+            for (JsonArray row : versions.result().getResults()) {
+                Long modified = indexed.remove(row.getInteger(0));
+                if (modified == null || modified != modifiedOf(row.getLong(1))) {
+                    stale.add(row.getInteger(0));
+                    oldestStale = Math.min(oldestStale, modifiedOf(row.getLong(1)));
+                }
+            }
+            indexed.keySet().forEach(searchIndex::remove);
+            if (stale.isEmpty()) {
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            LOGGER.info("Indexing " + stale.size() + " pages for search");
+            // Only read the pages written since the oldest stale one, all of them when it predates Modified
+            PageStream pages = new PageStream(this, oldestStale - 1, 100);
+            pages.exceptionHandler(err -> handler.handle(Future.failedFuture(err)));
+            pages.endHandler(v -> handler.handle(Future.succeededFuture()));
+            pages.handler(page -> {
+                if (stale.contains(page.getInteger("id"))) {
+                    searchIndex.put(page.getInteger("id"), page.getString("name"), page.getString("content"), modifiedOf(page.getLong("modified")));
+                }
+            });
+        }));
+    }
+    
+    /*
+     * Read back in the write transaction the pages written since {@code since}, so that the write
+     * fails when they cannot be added to the catalog and search index afterwards.
+     */
+    private void readChanges(SQLConnection connection, long since, List<JsonArray> changes, Handler<AsyncResult<Void>> done) {
+        connection.queryWithParams(sqlQueries.get(SqlQuery.PAGES_MODIFIED_SINCE), new JsonArray().add(since), fetch -> {
+            if (fetch.succeeded()) {
+                changes.addAll(fetch.result().getResults());
+                done.handle(Future.succeededFuture());
+            } else {
+                done.handle(Future.failedFuture(fetch.cause()));
+            }
+        });
+    }
+    
+    /*
+     * Add the pages read back by a committed write to the catalog and search index.
+     */
+    private void indexChanges(List<JsonArray> changes) {
+        for (JsonArray row : changes) {
+            catalog.put(row.getInteger(0), row.getString(1));
+            searchIndex.put(row.getInteger(0), row.getString(1), row.getString(2), modifiedOf(row.getLong(3)));
+        }
+    }
+    
+    private static long modifiedOf(Long modified) {
+        return modified == null ? 0 : modified;
+    }
+    
+    private void prepareDatabase(Handler<AsyncResult<Void>> readyHandler) {
         dbClient.getConnection(ar -> {
             if (ar.failed()) {
                 LOGGER.error("Could not open a database connection", ar.cause());
@@ -63,18 +223,112 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
             } else {
                 SQLConnection connection = ar.result();
                 connection.execute(sqlQueries.get(SqlQuery.CREATE_PAGES_TABLE), create -> {
-                    connection.close();
                     if (create.failed()) {
+                        connection.close();
                         LOGGER.error("Database preparation error", create.cause());
                         readyHandler.handle(Future.failedFuture(create.cause()));
                     } else {
-                        readyHandler.handle(Future.succeededFuture(this));
+                        connection.execute(sqlQueries.get(SqlQuery.CREATE_REVISIONS_TABLE), revisions -> {
+                            if (revisions.failed()) {
+                                connection.close();
+                                LOGGER.error("Database preparation error", revisions.cause());
+                                readyHandler.handle(Future.failedFuture(revisions.cause()));
+                                return;
+                            }
+                            migrateSchema(connection, migrate -> {
+                                connection.close();
+                                if (migrate.failed()) {
+                                    LOGGER.error("Database migration error", migrate.cause());
+                                    readyHandler.handle(Future.failedFuture(migrate.cause()));
+                                } else {
+                                    readyHandler.handle(Future.succeededFuture());
+                                }
+                            });
+                        });
                     }
                 });
             }
         });
     }
     
+    /*
+     * Databases created before the Html, Modified and Version columns existed get them added here, then
+     * the rendered HTML of their pages is backfilled in small batches.
+     */
+    private void migrateSchema(SQLConnection connection, Handler<AsyncResult<Void>> handler) {
+        connection.query(sqlQueries.get(SqlQuery.PAGES_COLUMNS), columns -> {
+            if (columns.failed()) {
+                handler.handle(Future.failedFuture(columns.cause()));
+                return;
+            }
+            List<String> names = columns.result().getResults()
+                    .stream()
+                    .map(row -> row.getString(0).toUpperCase())
+                    .collect(Collectors.toList());
+            addColumnIfMissing(connection, names, "Html", SqlQuery.ADD_HTML_COLUMN, html -> {
+                if (html.failed()) {
+                    handler.handle(html);
+                    return;
+                }
+                addColumnIfMissing(connection, names, "Modified", SqlQuery.ADD_MODIFIED_COLUMN, modified -> {
+                    if (modified.failed()) {
+                        handler.handle(modified);
+                        return;
+                    }
+                    addColumnIfMissing(connection, names, "Version", SqlQuery.ADD_VERSION_COLUMN, version -> {
+                        if (version.failed()) {
+                            handler.handle(version);
+                        } else {
+                            backfillHtml(connection, handler);
+                        }
+                    });
+                });
+            });
+        });
+    }
+
+    private void addColumnIfMissing(SQLConnection connection, List<String> columns, String column, SqlQuery alterQuery, Handler<AsyncResult<Void>> handler) {
+        if (columns.contains(column.toUpperCase())) {
+            handler.handle(Future.succeededFuture());
+            return;
+        }
+        LOGGER.info("Adding the " + column + " column to the Pages table");
+        connection.execute(sqlQueries.get(alterQuery), handler);
+    }
+
+    private void backfillHtml(SQLConnection connection, Handler<AsyncResult<Void>> handler) {
+        connection.query(sqlQueries.get(SqlQuery.PAGES_WITHOUT_HTML), fetch -> {
+            if (fetch.failed()) {
+                handler.handle(Future.failedFuture(fetch.cause()));
+                return;
+            }
+            List<JsonArray> rows = fetch.result().getResults();
+            if (rows.isEmpty()) {
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            List<String> contents = rows.stream().map(row -> row.getString(1)).collect(Collectors.toList());
+            renderer.renderAll(contents, render -> {
+                if (render.failed()) {
+                    handler.handle(Future.failedFuture(render.cause()));
+                    return;
+                }
+                List<JsonArray> batch = new ArrayList<>();
+                for (int i = 0; i < rows.size(); i++) {
+                    batch.add(new JsonArray().add(render.result().get(i)).add(rows.get(i).getInteger(0)));
+                }
+                connection.batchWithParams(sqlQueries.get(SqlQuery.SAVE_PAGE_HTML), batch, update -> {
+                    if (update.succeeded()) {
+                        LOGGER.info("Rendered the HTML of " + batch.size() + " existing pages");
+                        backfillHtml(connection, handler);
+                    } else {
+                        handler.handle(Future.failedFuture(update.cause()));
+                    }
+                });
+            });
+        });
+    }
+
     //<editor-fold defaultstate="collapsed" desc="Code Step8">
 //    @Override
 //    public WikiDatabaseService fetchAllPages(Handler<AsyncResult<JsonArray>> resultHandler) {
@@ -93,20 +347,7 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
     
     @Override
     public WikiDatabaseService fetchAllPages(Handler<AsyncResult<JsonArray>> resultHandler) {
-        dbClient.query(sqlQueries.get(SqlQuery.ALL_PAGES), res -> {
-            if (res.succeeded()) {
-                JsonArray pages = new JsonArray(res.result()
-                        .getResults()
-                        .stream()
-                        .map(json -> json.getString(0))
-                        .sorted()
-                        .collect(Collectors.toList()));
-                resultHandler.handle(Future.succeededFuture(pages));
-            } else {
-                LOGGER.error("Database query error", res.cause());
-                resultHandler.handle(Future.failedFuture(res.cause()));
-            }
-        });
+        resultHandler.handle(Future.succeededFuture(catalog.names()));
         return this;
     }
 
@@ -123,6 +364,9 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
                     JsonArray row = resultSet.getResults().get(0);
                     response.put("id", row.getInteger(0));
                     response.put("rawContent", row.getString(1));
+                    response.put("html", row.getString(2));
+                    response.put("version", row.getInteger(3));
+                    response.put("modified", row.getLong(4));
                 }
                 resultHandler.handle(Future.succeededFuture(response));
             } else {
@@ -135,42 +379,285 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
 
     @Override
     public WikiDatabaseService createPage(String title, String markdown, Handler<AsyncResult<Void>> resultHandler) {
-        JsonArray data = new JsonArray().add(title).add(markdown);
-        dbClient.updateWithParams(sqlQueries.get(SqlQuery.CREATE_PAGE), data, res -> {
+        // The page and its first revision are written together
+        return createPages(Collections.singletonList(new JsonObject().put("name", title).put("markdown", markdown)), resultHandler);
+    }
+
+    @Override
+    public WikiDatabaseService savePage(int id, String markdown, Handler<AsyncResult<Void>> resultHandler) {
+        renderer.renderAll(Collections.singletonList(markdown), render -> {
+            if (render.failed()) {
+                resultHandler.handle(Future.failedFuture(render.cause()));
+                return;
+            }
+            savePageRevision(id, markdown, render.result().get(0), SAVE_ATTEMPTS, resultHandler);
+        });
+        return this;
+    }
+
+    /*
+     * The new content is stored as a delta from the current one, or as a snapshot once the last
+     * snapshot is snapshotInterval versions old. Pages written before revisions were kept first get
+     * their current content as a snapshot. The update only applies to the version the delta was made
+     * from, a save of another instance in the meantime makes the transaction start over.
+     */
+    private void savePageRevision(int id, String markdown, String html, int attempts, Handler<AsyncResult<Void>> resultHandler) {
+        long now = System.currentTimeMillis();
+        List<JsonArray> changes = new ArrayList<>();
+        inTransaction((connection, done) -> connection.queryWithParams(sqlQueries.get(SqlQuery.REVISION_BASE), new JsonArray().add(id), fetch -> {
+            if (fetch.failed()) {
+                done.handle(Future.failedFuture(fetch.cause()));
+                return;
+            }
+            if (fetch.result().getNumRows() == 0) {
+                // Saving a deleted page changes nothing
+                done.handle(Future.succeededFuture());
+                return;
+            }
+            JsonArray base = fetch.result().getResults().get(0);
+            int version = base.getInteger(1);
+            List<JsonArray> revisions = new ArrayList<>();
+            addRevision(id, base, markdown, now, revisions);
+            JsonArray data = new JsonArray().add(markdown).add(html).add(now).add(id).add(version);
+            connection.updateWithParams(sqlQueries.get(SqlQuery.SAVE_PAGE_VERSION), data, update -> {
+                if (update.failed()) {
+                    done.handle(Future.failedFuture(update.cause()));
+                } else if (update.result().getUpdated() == 0) {
+                    done.handle(Future.failedFuture(new ConcurrentModificationException("Page " + id + " was saved meanwhile")));
+                } else {
+                    checkedBatch(connection, SqlQuery.CREATE_REVISION, revisions, created -> {
+                        if (created.succeeded()) {
+                            readChanges(connection, now - 1, changes, done);
+                        } else {
+                            done.handle(created);
+                        }
+                    });
+                }
+            });
+        }), res -> {
             if (res.succeeded()) {
-                resultHandler.handle(Future.succeededFuture());
+                indexChanges(changes);
+                resultHandler.handle(res);
+            } else if (res.cause() instanceof ConcurrentModificationException && attempts > 1) {
+                savePageRevision(id, markdown, html, attempts - 1, resultHandler);
             } else {
-                LOGGER.error("Database query error", res.cause());
-                resultHandler.handle(Future.failedFuture(res.cause()));
+                resultHandler.handle(res);
+            }
+        });
+    }
+
+    /*
+     * Add to {@code revisions} the revision of a page saved on top of its REVISION_BASE row,
+     * preceded by a snapshot of that base when the page has no revision of its current version.
+     * Returns the REVISION_BASE row of the saved version.
+     */
+    private JsonArray addRevision(int id, JsonArray base, String markdown, long now, List<JsonArray> revisions) {
+        String previous = base.getString(0) == null ? "" : base.getString(0);
+        int version = base.getInteger(1);
+        Integer latest = base.getInteger(3);
+        Integer snapshot = base.getInteger(4);
+        if (latest == null || latest != version || snapshot == null) {
+            revisions.add(new JsonArray().add(id).add(version).add(modifiedOf(base.getLong(2))).add(true).add(PageRevisions.snapshot(previous)));
+            snapshot = version;
+        }
+        boolean full = version + 1 - snapshot >= snapshotInterval;
+        revisions.add(new JsonArray().add(id).add(version + 1).add(now).add(full)
+                .add(full ? PageRevisions.snapshot(markdown) : PageRevisions.delta(previous, markdown)));
+        return new JsonArray().add(markdown).add(version + 1).add(now).add(version + 1).add(full ? version + 1 : snapshot);
+    }
+
+    /*
+     * Read the REVISION_BASE row of each page in turn, failing when one of them does not exist.
+     */
+    private void readRevisionBases(SQLConnection connection, Iterator<Integer> ids, Map<Integer, JsonArray> bases,
+            Handler<AsyncResult<Map<Integer, JsonArray>>> handler) {
+        if (!ids.hasNext()) {
+            handler.handle(Future.succeededFuture(bases));
+            return;
+        }
+        int id = ids.next();
+        connection.queryWithParams(sqlQueries.get(SqlQuery.REVISION_BASE), new JsonArray().add(id), fetch -> {
+            if (fetch.failed()) {
+                handler.handle(Future.failedFuture(fetch.cause()));
+            } else if (fetch.result().getNumRows() == 0) {
+                handler.handle(Future.failedFuture(new IllegalArgumentException("No page with id " + id)));
+            } else {
+                bases.put(id, fetch.result().getResults().get(0));
+                readRevisionBases(connection, ids, bases, handler);
+            }
+        });
+    }
+
+    @Override
+    public WikiDatabaseService createPages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler) {
+        List<String> markdowns = pages.stream().map(page -> page.getString("markdown")).collect(Collectors.toList());
+        renderer.renderAll(markdowns, render -> {
+            if (render.failed()) {
+                resultHandler.handle(Future.failedFuture(render.cause()));
+                return;
+            }
+            long now = System.currentTimeMillis();
+            List<JsonArray> batch = new ArrayList<>();
+            List<JsonArray> snapshots = new ArrayList<>();
+            for (int i = 0; i < pages.size(); i++) {
+                batch.add(new JsonArray().add(pages.get(i).getString("name")).add(markdowns.get(i)).add(render.result().get(i)).add(now));
+                snapshots.add(new JsonArray().add(PageRevisions.snapshot(markdowns.get(i))).add(pages.get(i).getString("name")));
             }
+            List<JsonArray> changes = new ArrayList<>();
+            inTransaction((connection, done) -> checkedBatch(connection, SqlQuery.CREATE_PAGE, batch, created -> {
+                if (created.failed()) {
+                    done.handle(created);
+                    return;
+                }
+                checkedBatch(connection, SqlQuery.CREATE_SNAPSHOT_BY_NAME, snapshots, revised -> {
+                    if (revised.succeeded()) {
+                        readChanges(connection, now - 1, changes, done);
+                    } else {
+                        done.handle(revised);
+                    }
+                });
+            }), res -> {
+                if (res.succeeded()) {
+                    indexChanges(changes);
+                }
+                resultHandler.handle(res);
+            });
         });
         return this;
     }
 
     @Override
-    public WikiDatabaseService savePage(int id, String markdown, Handler<AsyncResult<Void>> resultHandler) {
-        JsonArray data = new JsonArray().add(markdown).add(id);
-        dbClient.updateWithParams(sqlQueries.get(SqlQuery.SAVE_PAGE), data, res -> {
+    public WikiDatabaseService savePages(List<JsonObject> pages, Handler<AsyncResult<Void>> resultHandler) {
+        List<String> markdowns = pages.stream().map(page -> page.getString("markdown")).collect(Collectors.toList());
+        renderer.renderAll(markdowns, render -> {
+            if (render.failed()) {
+                resultHandler.handle(Future.failedFuture(render.cause()));
+                return;
+            }
+            savePageRevisions(pages, markdowns, render.result(), SAVE_ATTEMPTS, resultHandler);
+        });
+        return this;
+    }
+
+    /*
+     * Same revisions as savePageRevision, for a batch: a page saved twice in the batch gets both
+     * versions. The whole batch starts over when one of its pages was saved meanwhile.
+     */
+    private void savePageRevisions(List<JsonObject> pages, List<String> markdowns, List<String> htmls, int attempts, Handler<AsyncResult<Void>> resultHandler) {
+        long now = System.currentTimeMillis();
+        Set<Integer> ids = new LinkedHashSet<>();
+        pages.forEach(page -> ids.add(page.getInteger("id")));
+        List<JsonArray> changes = new ArrayList<>();
+        inTransaction((connection, done) -> readRevisionBases(connection, ids.iterator(), new HashMap<>(), read -> {
+            if (read.failed()) {
+                done.handle(Future.failedFuture(read.cause()));
+                return;
+            }
+            Map<Integer, JsonArray> bases = read.result();
+            List<JsonArray> batch = new ArrayList<>();
+            List<JsonArray> revisions = new ArrayList<>();
+            for (int i = 0; i < pages.size(); i++) {
+                int id = pages.get(i).getInteger("id");
+                JsonArray base = bases.get(id);
+                batch.add(new JsonArray().add(markdowns.get(i)).add(htmls.get(i)).add(now).add(id).add(base.getInteger(1)));
+                bases.put(id, addRevision(id, base, markdowns.get(i), now, revisions));
+            }
+            checkedBatch(connection, SqlQuery.SAVE_PAGE_VERSION, batch, saved -> {
+                if (saved.failed()) {
+                    // The pages all exist, an update that changed nothing lost the race for a version
+                    done.handle(Future.failedFuture(saved.cause() instanceof IllegalArgumentException
+                            ? new ConcurrentModificationException("Pages of the batch were saved meanwhile")
+                            : saved.cause()));
+                    return;
+                }
+                checkedBatch(connection, SqlQuery.CREATE_REVISION, revisions, revised -> {
+                    if (revised.succeeded()) {
+                        readChanges(connection, now - 1, changes, done);
+                    } else {
+                        done.handle(revised);
+                    }
+                });
+            });
+        }), res -> {
             if (res.succeeded()) {
-                resultHandler.handle(Future.succeededFuture());
+                indexChanges(changes);
+                resultHandler.handle(res);
+            } else if (res.cause() instanceof ConcurrentModificationException && attempts > 1) {
+                savePageRevisions(pages, markdowns, htmls, attempts - 1, resultHandler);
             } else {
-                LOGGER.error("Database query error", res.cause());
-                resultHandler.handle(Future.failedFuture(res.cause()));
+                resultHandler.handle(res);
             }
         });
-        return this;
+    }
+
+    /*
+     * Runs the statements of the work in one transaction, committed when it succeeds and rolled back
+     * otherwise.
+     */
+    private void inTransaction(BiConsumer<SQLConnection, Handler<AsyncResult<Void>>> work, Handler<AsyncResult<Void>> resultHandler) {
+        dbClient.getConnection(ar -> {
+            if (ar.failed()) {
+                LOGGER.error("Could not open a database connection", ar.cause());
+                resultHandler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            SQLConnection connection = ar.result();
+            Handler<AsyncResult<Void>> done = res -> connection.setAutoCommit(true, reset -> {
+                connection.close();
+                resultHandler.handle(res);
+            });
+            connection.setAutoCommit(false, tx -> {
+                if (tx.failed()) {
+                    done.handle(Future.failedFuture(tx.cause()));
+                    return;
+                }
+                work.accept(connection, res -> {
+                    if (res.succeeded()) {
+                        connection.commit(done);
+                    } else {
+                        LOGGER.error("Database transaction error", res.cause());
+                        connection.rollback(rollback -> done.handle(res));
+                    }
+                });
+            });
+        });
+    }
+
+    /*
+     * As an update of a deleted page would otherwise be silently ignored, the batch fails when one
+     * of its statements changes no row.
+     */
+    private void checkedBatch(SQLConnection connection, SqlQuery query, List<JsonArray> batch, Handler<AsyncResult<Void>> handler) {
+        connection.batchWithParams(sqlQueries.get(query), batch, update -> {
+            if (update.failed()) {
+                handler.handle(Future.failedFuture(update.cause()));
+                return;
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                if (update.result().get(i) == 0) {
+                    handler.handle(Future.failedFuture(new IllegalArgumentException("No page updated by batch entry " + i)));
+                    return;
+                }
+            }
+            handler.handle(Future.succeededFuture());
+        });
     }
 
     @Override
     public WikiDatabaseService deletePage(int id, Handler<AsyncResult<Void>> resultHandler) {
         JsonArray data = new JsonArray().add(id);
-        dbClient.updateWithParams(sqlQueries.get(SqlQuery.DELETE_PAGE), data, res -> {
-            if (res.succeeded()) {
-                resultHandler.handle(Future.succeededFuture());
+        inTransaction((connection, done) -> connection.updateWithParams(sqlQueries.get(SqlQuery.DELETE_PAGE), data, deleted -> {
+            if (deleted.succeeded()) {
+                connection.updateWithParams(sqlQueries.get(SqlQuery.DELETE_PAGE_REVISIONS), data, revisions -> done.handle(revisions.mapEmpty()));
             } else {
-                LOGGER.error("Database query error", res.cause());
-                resultHandler.handle(Future.failedFuture(res.cause()));
+                done.handle(Future.failedFuture(deleted.cause()));
             }
+        }), res -> {
+            if (res.succeeded()) {
+                catalog.remove(id);
+                searchIndex.remove(id);
+            }
+            resultHandler.handle(res);
         });
         return this;
     }
@@ -212,6 +699,9 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
                     response.put("id", row.getInteger(0));
                     response.put("name", row.getString(1));
                     response.put("content", row.getString(2));
+                    response.put("html", row.getString(3));
+                    response.put("version", row.getInteger(4));
+                    response.put("modified", row.getLong(5));
                 }
                 resultHandler.handle(Future.succeededFuture(response));
             } else {
@@ -222,4 +712,127 @@ public class WikiDatabaseServiceImpl implements WikiDatabaseService {
         return this;
     }
 
+    @Override
+    public WikiDatabaseService fetchAllPageSummaries(Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        resultHandler.handle(Future.succeededFuture(catalog.summaries()));
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService fetchPageSummaries(String after, int pageSize, Handler<AsyncResult<JsonObject>> resultHandler) {
+        resultHandler.handle(Future.succeededFuture(catalog.summariesAfter(after, Math.max(1, pageSize))));
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService fetchPageSummariesWithPrefix(String prefix, int limit, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        resultHandler.handle(Future.succeededFuture(catalog.summariesWithPrefix(prefix == null ? "" : prefix, Math.max(1, limit))));
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService openPagesCursor(long modifiedSince, int chunkSize, Handler<AsyncResult<String>> resultHandler) {
+        if (!cursors.reserve()) {
+            resultHandler.handle(Future.failedFuture("Too many open page cursors"));
+            return this;
+        }
+        dbClient.getConnection(ar -> {
+            if (ar.failed()) {
+                cursors.unreserve();
+                LOGGER.error("Could not open a database connection", ar.cause());
+                resultHandler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            SQLConnection connection = ar.result();
+            Handler<AsyncResult<SQLRowStream>> opened = query -> {
+                if (query.succeeded()) {
+                    resultHandler.handle(Future.succeededFuture(cursors.open(connection, query.result(), Math.max(1, chunkSize))));
+                } else {
+                    cursors.unreserve();
+                    connection.close();
+                    LOGGER.error("Database query error", query.cause());
+                    resultHandler.handle(Future.failedFuture(query.cause()));
+                }
+            };
+            if (modifiedSince > 0) {
+                connection.queryStreamWithParams(sqlQueries.get(SqlQuery.PAGES_MODIFIED_SINCE), new JsonArray().add(modifiedSince), opened);
+            } else {
+                connection.queryStream(sqlQueries.get(SqlQuery.ALL_PAGES_DATA), opened);
+            }
+        });
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService fetchPagesChunk(String cursor, Handler<AsyncResult<JsonObject>> resultHandler) {
+        cursors.fetch(cursor, resultHandler);
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService searchPages(String query, int offset, int limit, Handler<AsyncResult<JsonObject>> resultHandler) {
+        resultHandler.handle(Future.succeededFuture(searchIndex.search(query, offset, limit)));
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService fetchPageRevisions(int id, Handler<AsyncResult<List<JsonObject>>> resultHandler) {
+        dbClient.queryWithParams(sqlQueries.get(SqlQuery.PAGE_REVISIONS), new JsonArray().add(id), fetch -> {
+            if (fetch.succeeded()) {
+                List<JsonObject> revisions = fetch.result().getResults()
+                        .stream()
+                        .map(row -> new JsonObject()
+                                .put("version", row.getInteger(0))
+                                .put("modified", row.getLong(1))
+                                .put("snapshot", row.getBoolean(2))
+                                .put("size", row.getLong(3)))
+                        .collect(Collectors.toList());
+                resultHandler.handle(Future.succeededFuture(revisions));
+            } else {
+                LOGGER.error("Database query error", fetch.cause());
+                resultHandler.handle(Future.failedFuture(fetch.cause()));
+            }
+        });
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService fetchPageRevision(int id, int version, Handler<AsyncResult<JsonObject>> resultHandler) {
+        JsonArray params = new JsonArray().add(id).add(version).add(id).add(version);
+        dbClient.queryWithParams(sqlQueries.get(SqlQuery.PAGE_REVISION_CHAIN), params, fetch -> {
+            if (fetch.failed()) {
+                LOGGER.error("Database query error", fetch.cause());
+                resultHandler.handle(Future.failedFuture(fetch.cause()));
+                return;
+            }
+            List<JsonArray> chain = fetch.result().getResults();
+            JsonObject response = new JsonObject();
+            if (chain.isEmpty() || chain.get(chain.size() - 1).getInteger(0) != version) {
+                resultHandler.handle(Future.succeededFuture(response.put("found", false)));
+                return;
+            }
+            try {
+                response
+                        .put("found", true)
+                        .put("id", id)
+                        .put("version", version)
+                        .put("modified", chain.get(chain.size() - 1).getLong(3))
+                        .put("content", PageRevisions.restore(chain));
+            } catch (RuntimeException e) {
+                LOGGER.error("Could not rebuild revision " + version + " of page " + id, e);
+                resultHandler.handle(Future.failedFuture(e));
+                return;
+            }
+            resultHandler.handle(Future.succeededFuture(response));
+        });
+        return this;
+    }
+    
+    @Override
+    public WikiDatabaseService closePagesCursor(String cursor, Handler<AsyncResult<Void>> resultHandler) {
+        cursors.close(cursor);
+        resultHandler.handle(Future.succeededFuture());
+        return this;
+    }
+
 }
@@ -17,6 +17,7 @@
 package io.vertx.starter.database;
 
 import io.vertx.core.AbstractVerticle;
+import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
 import io.vertx.core.json.JsonObject;
@@ -24,6 +25,7 @@ import io.vertx.core.json.JsonObject;
 //import io.vertx.reactivex.ext.jdbc.JDBCClient;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.serviceproxy.ServiceBinder;
+import io.vertx.starter.markdown.MarkdownRenderer;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -46,16 +48,37 @@ public class WikiDatabaseVerticle extends AbstractVerticle {
     public static final String CONFIG_WIKIDB_SQL_QUERIES_RESOURCE_FILE = "wikidb.sqlqueries.resource.file";
 
     public static final String CONFIG_WIKIDB_QUEUE = "wikidb.queue";
+    public static final String CONFIG_WIKIDB_CURSOR_IDLE_TIMEOUT = "wikidb.cursor.idle_timeout";
+    public static final String CONFIG_WIKIDB_CURSOR_MAX_OPEN = "wikidb.cursor.max_open";
+    public static final String CONFIG_WIKIDB_INSTANCES = "wikidb.instances";
+    public static final String CONFIG_WIKIDB_WORKER = "wikidb.worker";
+    public static final String CONFIG_WIKIDB_LOCAL_CALLS = "wikidb.local_calls";
+    public static final String CONFIG_WIKIDB_REVISIONS_SNAPSHOT_INTERVAL = "wikidb.revisions.snapshot_interval";
     
     public enum SqlQuery {
         CREATE_PAGES_TABLE,
-        ALL_PAGES,
         GET_PAGE,
         CREATE_PAGE,
-        SAVE_PAGE,
         DELETE_PAGE,
         ALL_PAGES_DATA,
-        GET_PAGE_BY_ID
+        GET_PAGE_BY_ID,
+        ALL_PAGE_SUMMARIES,
+        PAGES_MODIFIED_SINCE,
+        PAGES_COLUMNS,
+        ADD_HTML_COLUMN,
+        ADD_MODIFIED_COLUMN,
+        ADD_VERSION_COLUMN,
+        PAGES_WITHOUT_HTML,
+        SAVE_PAGE_HTML,
+        PAGE_VERSIONS,
+        CREATE_REVISIONS_TABLE,
+        REVISION_BASE,
+        SAVE_PAGE_VERSION,
+        CREATE_REVISION,
+        CREATE_SNAPSHOT_BY_NAME,
+        PAGE_REVISIONS,
+        PAGE_REVISION_CHAIN,
+        DELETE_PAGE_REVISIONS
     }
     
     public enum ErrorCodes {
@@ -79,17 +102,33 @@ public class WikiDatabaseVerticle extends AbstractVerticle {
 
         HashMap<SqlQuery, String> sqlQueries = new HashMap<>();
         sqlQueries.put(SqlQuery.CREATE_PAGES_TABLE, queriesProps.getProperty("create-pages-table"));
-        sqlQueries.put(SqlQuery.ALL_PAGES, queriesProps.getProperty("all-pages"));
         sqlQueries.put(SqlQuery.GET_PAGE, queriesProps.getProperty("get-page"));
         sqlQueries.put(SqlQuery.CREATE_PAGE, queriesProps.getProperty("create-page"));
-        sqlQueries.put(SqlQuery.SAVE_PAGE, queriesProps.getProperty("save-page"));
         sqlQueries.put(SqlQuery.DELETE_PAGE, queriesProps.getProperty("delete-page"));
         sqlQueries.put(SqlQuery.ALL_PAGES_DATA, queriesProps.getProperty("all-pages-data"));
         sqlQueries.put(SqlQuery.GET_PAGE_BY_ID, queriesProps.getProperty("get-pages-by-id"));
+        sqlQueries.put(SqlQuery.ALL_PAGE_SUMMARIES, queriesProps.getProperty("all-page-summaries"));
+        sqlQueries.put(SqlQuery.PAGES_MODIFIED_SINCE, queriesProps.getProperty("pages-modified-since"));
+        sqlQueries.put(SqlQuery.PAGES_COLUMNS, queriesProps.getProperty("pages-columns"));
+        sqlQueries.put(SqlQuery.ADD_HTML_COLUMN, queriesProps.getProperty("add-html-column"));
+        sqlQueries.put(SqlQuery.ADD_MODIFIED_COLUMN, queriesProps.getProperty("add-modified-column"));
+        sqlQueries.put(SqlQuery.ADD_VERSION_COLUMN, queriesProps.getProperty("add-version-column"));
+        sqlQueries.put(SqlQuery.PAGES_WITHOUT_HTML, queriesProps.getProperty("pages-without-html"));
+        sqlQueries.put(SqlQuery.SAVE_PAGE_HTML, queriesProps.getProperty("save-page-html"));
+        sqlQueries.put(SqlQuery.PAGE_VERSIONS, queriesProps.getProperty("page-versions"));
+        sqlQueries.put(SqlQuery.CREATE_REVISIONS_TABLE, queriesProps.getProperty("create-revisions-table"));
+        sqlQueries.put(SqlQuery.REVISION_BASE, queriesProps.getProperty("revision-base"));
+        sqlQueries.put(SqlQuery.SAVE_PAGE_VERSION, queriesProps.getProperty("save-page-version"));
+        sqlQueries.put(SqlQuery.CREATE_REVISION, queriesProps.getProperty("create-revision"));
+        sqlQueries.put(SqlQuery.CREATE_SNAPSHOT_BY_NAME, queriesProps.getProperty("create-snapshot-by-name"));
+        sqlQueries.put(SqlQuery.PAGE_REVISIONS, queriesProps.getProperty("page-revisions"));
+        sqlQueries.put(SqlQuery.PAGE_REVISION_CHAIN, queriesProps.getProperty("page-revision-chain"));
+        sqlQueries.put(SqlQuery.DELETE_PAGE_REVISIONS, queriesProps.getProperty("delete-page-revisions"));
         return sqlQueries;
     }
     
     private JDBCClient dbClient;
+    private WikiDatabaseService service;
 
     @Override
     public void start(Promise<Void> promise) throws Exception {
@@ -107,11 +146,22 @@ public class WikiDatabaseVerticle extends AbstractVerticle {
 //                .put("driver_class", config().getString(CONFIG_WIKIDB_JDBC_DRIVER_CLASS, DatabaseConstants.DEFAULT_WIKIDB_JDBC_DRIVER_CLASS)) // "org.hsqldb.jdbcDriver"
 //                .put("max_pool_size", config().getInteger(CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, DatabaseConstants.DEFAULT_JDBC_MAX_POOL_SIZE))); // 30        
         
-        WikiDatabaseService.create(dbClient, sqlQueries, ready -> {
+        DatabaseMetrics metrics = DatabaseMetrics.shared(vertx);
+        String instance = metrics.register();
+        vertx.eventBus().localConsumer(DatabaseMetrics.ADDRESS, message -> message.reply(metrics.snapshot()));
+        
+        WikiDatabaseService.create(vertx, dbClient, sqlQueries, MarkdownRenderer.shared(vertx, config()), config(), ready -> {
             if (ready.succeeded()) {
+                // All instances listen on the same address, the event bus dispatches the calls round-robin
                 ServiceBinder binder = new ServiceBinder(vertx);
                 binder.setAddress(CONFIG_WIKIDB_QUEUE)
+                        .addInterceptor(message -> {
+                            metrics.record(instance, message.headers().get("action"));
+                            return Future.succeededFuture(message);
+                        })
                         .register(WikiDatabaseService.class, ready.result());
+                service = ready.result();
+                LocalWikiDatabaseService.register(vertx, CONFIG_WIKIDB_QUEUE, instance, service);
                 promise.complete();
             } else {
                 promise.fail(ready.cause());
@@ -119,6 +169,13 @@ public class WikiDatabaseVerticle extends AbstractVerticle {
         });
     }
     
+    @Override
+    public void stop() throws Exception {
+        if (service != null) {
+            LocalWikiDatabaseService.unregister(vertx, CONFIG_WIKIDB_QUEUE, service);
+        }
+    }
+    
     //<editor-fold defaultstate="collapsed" desc="Code Step 3">
 //    private final HashMap<SqlQuery, String> sqlQueries = new HashMap<>();
 //    private void loadSqlQueries() throws IOException {
@@ -0,0 +1,124 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.auth.jwt.JWTAuth;
+import io.vertx.ext.jwt.JWTOptions;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link JWTAuth} that remembers the tokens it already verified, so that a client sending many
+ * requests with the same token only pays for the signature check once.
+ *
+ * A verified token is kept until its {@code exp} claim, and at most {@code ttl} milliseconds.
+ * Tokens are kept by their SHA-256, so that the cache never holds a usable credential, e.g. in a
+ * heap dump. Instances are not thread safe, each HTTP verticle has its own.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class CachingJWTAuth implements JWTAuth {
+    public static final String CONFIG_AUTH_JWT_CACHE_TTL = "auth.jwt.cache.ttl";
+    public static final String CONFIG_AUTH_JWT_CACHE_MAX_ENTRIES = "auth.jwt.cache.max_entries";
+
+    public static final long DEFAULT_AUTH_JWT_CACHE_TTL = 300000;
+    public static final int DEFAULT_AUTH_JWT_CACHE_MAX_ENTRIES = 10000;
+
+    private final JWTAuth delegate;
+    private final long ttl;
+    private final Map<String, Entry> verified;
+
+    public CachingJWTAuth(JWTAuth delegate, long ttl, int maxEntries) {
+        this.delegate = delegate;
+        this.ttl = ttl;
+        this.verified = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    public static CachingJWTAuth create(JWTAuth delegate, JsonObject config) {
+        return new CachingJWTAuth(delegate,
+                config.getLong(CONFIG_AUTH_JWT_CACHE_TTL, DEFAULT_AUTH_JWT_CACHE_TTL),
+                config.getInteger(CONFIG_AUTH_JWT_CACHE_MAX_ENTRIES, DEFAULT_AUTH_JWT_CACHE_MAX_ENTRIES));
+    }
+
+    @Override
+    public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
+        String token = authInfo.getString("jwt");
+        if (token == null) {
+            delegate.authenticate(authInfo, resultHandler);
+            return;
+        }
+        String key = key(token);
+        long now = System.currentTimeMillis();
+        Entry entry = verified.get(key);
+        if (entry != null) {
+            if (entry.expiresAt > now) {
+                resultHandler.handle(Future.succeededFuture(entry.user));
+                return;
+            }
+            verified.remove(key);
+        }
+        delegate.authenticate(authInfo, ar -> {
+            if (ar.succeeded()) {
+                long expiresAt = now + ttl;
+                Long exp = ar.result().principal().getLong("exp");
+                if (exp != null) {
+                    expiresAt = Math.min(expiresAt, exp * 1000);
+                }
+                verified.put(key, new Entry(ar.result(), expiresAt));
+            }
+            resultHandler.handle(ar);
+        });
+    }
+
+    @Override
+    public String generateToken(JsonObject claims, JWTOptions options) {
+        return delegate.generateToken(claims, options);
+    }
+
+    private static String key(String token) {
+        try {
+            return Base64.getEncoder().encodeToString(MessageDigest.getInstance("SHA-256").digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static final class Entry {
+        private final User user;
+        private final long expiresAt;
+
+        Entry(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Size-bounded LRU cache of gzipped page responses, keyed by their entity tag.
+ *
+ * A tag names one version of one representation of a page, so a hot page is compressed once per
+ * version instead of on every request, and the entries of older versions simply age out. Pages are
+ * compressed on a worker thread, a large one would hold the event loop.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class CompressedPages implements Shareable {
+    static final String CONFIG_HTTP_COMPRESSED_PAGES_MAX_ENTRIES = "http.compressed_pages.max_entries";
+    static final String CONFIG_HTTP_COMPRESSED_PAGES_MAX_BYTES = "http.compressed_pages.max_bytes";
+
+    private static final int DEFAULT_MAX_ENTRIES = 1000;
+    private static final long DEFAULT_MAX_BYTES = 16L * 1024 * 1024;
+
+    private static final String SHARED_MAP_NAME = "wiki.http";
+    private static final String SHARED_CACHE_KEY = "compressed-pages";
+
+    private final Vertx vertx;
+    private final int maxEntries;
+    private final long maxBytes;
+    private final LinkedHashMap<String, Buffer> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long bytes;
+
+    private CompressedPages(Vertx vertx, int maxEntries, long maxBytes) {
+        this.vertx = vertx;
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Get the cache shared by all verticles of this Vert.x instance, the first caller configures it.
+     */
+    static CompressedPages shared(Vertx vertx, JsonObject config) {
+        LocalMap<String, CompressedPages> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_CACHE_KEY, k -> new CompressedPages(vertx,
+                config.getInteger(CONFIG_HTTP_COMPRESSED_PAGES_MAX_ENTRIES, DEFAULT_MAX_ENTRIES),
+                config.getLong(CONFIG_HTTP_COMPRESSED_PAGES_MAX_BYTES, DEFAULT_MAX_BYTES)));
+    }
+
+    /**
+     * True when the request accepts a gzipped response, i.e. lists gzip without a zero quality.
+     */
+    static boolean acceptsGzip(HttpServerRequest request) {
+        String accepted = request.getHeader("Accept-Encoding");
+        if (accepted == null) {
+            return false;
+        }
+        for (String coding : accepted.split(",")) {
+            String[] parts = coding.trim().split(";");
+            if (parts[0].trim().equalsIgnoreCase("gzip")) {
+                return parts.length == 1 || !parts[1].trim().matches("q=0(\\.0*)?");
+            }
+        }
+        return false;
+    }
+
+    synchronized Buffer get(String tag) {
+        return entries.get(tag);
+    }
+
+    /**
+     * Gzip a body on a worker thread and keep it under its tag, unless it alone is larger than the cache.
+     */
+    void compress(String tag, String body, Handler<AsyncResult<Buffer>> handler) {
+        vertx.<Buffer>executeBlocking(promise -> {
+            Buffer gzipped = Buffer.buffer(gzip(body.getBytes(StandardCharsets.UTF_8)));
+            if (gzipped.length() <= maxBytes) {
+                put(tag, gzipped);
+            }
+            promise.complete(gzipped);
+        }, false, handler);
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private synchronized void put(String tag, Buffer gzipped) {
+        Buffer previous = entries.put(tag, gzipped);
+        if (previous != null) {
+            bytes -= previous.length();
+        }
+        bytes += gzipped.length();
+        Iterator<Map.Entry<String, Buffer>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || bytes > maxBytes) && it.hasNext()) {
+            bytes -= it.next().getValue().length();
+            it.remove();
+        }
+    }
+
+    static byte[] gzip(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
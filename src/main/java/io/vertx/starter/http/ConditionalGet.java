@@ -0,0 +1,139 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.http.HttpServerRequest;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.ext.web.RoutingContext;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Validators ({@code ETag}, {@code Last-Modified}) of the responses and the matching
+ * {@code 304 Not Modified} answers.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class ConditionalGet {
+    private static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.RFC_1123_DATE_TIME.withZone(ZoneOffset.UTC);
+
+    private ConditionalGet() {
+    }
+
+    /**
+     * Put the validators on the response and answer 304 when the ones of the request still match,
+     * {@code If-None-Match} takes precedence over {@code If-Modified-Since}.
+     *
+     * @param etag the entity tag, {@code null} if there is none
+     * @param lastModified epoch millis, 0 if unknown
+     * @return true when the 304 was sent and nothing else must be written
+     */
+    static boolean notModified(RoutingContext context, String etag, long lastModified) {
+        // Revalidated on every use, the pages are behind authentication
+        return notModified(context, etag, lastModified, "private, no-cache");
+    }
+
+    /**
+     * Same as {@link #notModified(RoutingContext, String, long)} with the given {@code Cache-Control}.
+     */
+    static boolean notModified(RoutingContext context, String etag, long lastModified, String cacheControl) {
+        HttpServerResponse response = context.response();
+        response.putHeader("Cache-Control", cacheControl);
+        if (etag != null) {
+            response.putHeader("ETag", etag);
+        }
+        if (lastModified > 0) {
+            response.putHeader("Last-Modified", HTTP_DATE.format(Instant.ofEpochMilli(lastModified)));
+        }
+        if (!matches(context.request(), etag, lastModified)) {
+            return false;
+        }
+        response.setStatusCode(304).end();
+        return true;
+    }
+
+    /**
+     * Entity tag of a stored page in a given representation, it changes with every save of the page.
+     */
+    static String pageTag(int id, int version, String representation) {
+        return "\"" + id + "-" + version + "-" + representation + "\"";
+    }
+
+    /**
+     * Entity tag computed from a response body, for resources without a version.
+     */
+    static String contentTag(String body) {
+        return "\"" + digest(body) + "\"";
+    }
+
+    /**
+     * Short hexadecimal digest of a text.
+     */
+    static String digest(String text) {
+        return digest(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    static String digest(byte[] bytes) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(bytes);
+            StringBuilder hex = new StringBuilder();
+            for (int i = 0; i < 12; i++) {
+                hex.append(String.format("%02x", digest[i]));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static boolean matches(HttpServerRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader("If-None-Match");
+        if (ifNoneMatch != null) {
+            if (etag == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String candidate = tag.trim();
+                if (candidate.startsWith("W/")) {
+                    candidate = candidate.substring(2);
+                }
+                if (candidate.equals("*") || candidate.equals(etag)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        String ifModifiedSince = request.getHeader("If-Modified-Since");
+        if (ifModifiedSince != null && lastModified > 0) {
+            try {
+                long since = ZonedDateTime.parse(ifModifiedSince, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                // HTTP dates have a one second precision
+                return lastModified / 1000 <= since / 1000;
+            } catch (DateTimeParseException e) {
+                return false;
+            }
+        }
+        return false;
+    }
+}
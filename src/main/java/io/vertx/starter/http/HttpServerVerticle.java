@@ -16,32 +16,32 @@
 
 package io.vertx.starter.http;
 
-import com.github.rjeschke.txtmark.Processor;
 //import io.reactivex.Single;
 import io.vertx.core.AbstractVerticle;
 import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
 import io.vertx.core.Handler;
 import io.vertx.core.Promise;
+import io.vertx.core.buffer.Buffer;
 import io.vertx.core.eventbus.DeliveryOptions;
 import io.vertx.core.http.HttpServer;
 import io.vertx.core.http.HttpServerOptions;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.JksOptions;
+import io.vertx.core.net.OpenSSLEngineOptions;
 import io.vertx.ext.auth.KeyStoreOptions;
 import io.vertx.ext.auth.User;
 import io.vertx.ext.auth.jdbc.JDBCAuth;
 import io.vertx.ext.auth.jwt.JWTAuth;
 import io.vertx.ext.auth.jwt.JWTAuthOptions;
 import io.vertx.ext.auth.jwt.JWTOptions;
+import io.vertx.ext.bridge.BridgeEventType;
 import io.vertx.ext.bridge.PermittedOptions;
 import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.web.Router;
 import io.vertx.ext.web.RoutingContext;
-import io.vertx.ext.web.client.HttpResponse;
-import io.vertx.ext.web.client.WebClient;
-import io.vertx.ext.web.client.WebClientOptions;
-import io.vertx.ext.web.codec.BodyCodec;
 import io.vertx.ext.web.handler.AuthHandler;
 import io.vertx.ext.web.handler.BodyHandler;
 import io.vertx.ext.web.handler.CookieHandler;
@@ -49,17 +49,26 @@ import io.vertx.ext.web.handler.FormLoginHandler;
 import io.vertx.ext.web.handler.JWTAuthHandler;
 import io.vertx.ext.web.handler.RedirectAuthHandler;
 import io.vertx.ext.web.handler.SessionHandler;
-import io.vertx.ext.web.handler.StaticHandler;
 import io.vertx.ext.web.handler.UserSessionHandler;
 import io.vertx.ext.web.handler.sockjs.BridgeOptions;
 import io.vertx.ext.web.handler.sockjs.SockJSHandler;
+import io.vertx.ext.web.handler.sockjs.SockJSSocket;
+import io.vertx.ext.web.sstore.ClusteredSessionStore;
 import io.vertx.ext.web.sstore.LocalSessionStore;
+import io.vertx.ext.web.sstore.SessionStore;
 import io.vertx.ext.web.templ.freemarker.FreeMarkerTemplateEngine;
+import io.vertx.starter.backup.BackupException;
+import io.vertx.starter.backup.WikiBackup;
 import io.vertx.starter.database.WikiDatabaseService;
 import io.vertx.starter.DatabaseConstants;
+import io.vertx.starter.markdown.MarkdownCache;
+import io.vertx.starter.markdown.MarkdownPreview;
+import io.vertx.starter.markdown.MarkdownRenderException;
+import io.vertx.starter.markdown.MarkdownRenderer;
 import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_DRIVER_CLASS;
 import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE;
 import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL;
+import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_LOCAL_CALLS;
 
 //import io.vertx.starter.database.reactivex.WikiDatabaseService;
 //import io.vertx.reactivex.core.AbstractVerticle;
@@ -77,10 +86,17 @@ import static io.vertx.starter.database.WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_
 //import io.vertx.reactivex.ext.web.sstore.LocalSessionStore;
 //import io.vertx.reactivex.ext.web.templ.freemarker.FreeMarkerTemplateEngine;
 
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -108,19 +124,63 @@ public class HttpServerVerticle extends AbstractVerticle {
     private static final Logger LOGGER = LoggerFactory.getLogger(HttpServerVerticle.class);
 
     public static final String CONFIG_HTTP_SERVER_PORT = "http.server.port";
+    public static final String CONFIG_HTTP_SERVER_INSTANCES = "http.server.instances";
     public static final String CONFIG_WIKIDB_QUEUE = "wikidb.queue";
+    public static final String CONFIG_PAGES_PAGE_SIZE = "http.pages.page_size";
+    public static final String CONFIG_PAGES_BATCH_MAX_SIZE = "http.pages.batch_max_size";
+    public static final String CONFIG_PAGES_IMPORT_BATCH_SIZE = "http.pages.import_batch_size";
+    public static final String CONFIG_HTTP_SESSION_STORE = "http.session.store";
+    public static final String CONFIG_HTTP_SERVER_SSL = "http.server.ssl";
+    public static final String CONFIG_HTTP_SERVER_KEYSTORE = "http.server.keystore";
+    public static final String CONFIG_HTTP_SERVER_KEYSTORE_PASSWORD = "http.server.keystore_password";
+    public static final String CONFIG_HTTP_SERVER_HTTP2 = "http.server.http2";
+    public static final String CONFIG_HTTP_SERVER_OPENSSL = "http.server.openssl";
+    public static final String CONFIG_HTTP_SERVER_COMPRESSION = "http.server.compression";
+
+    public static final String DEFAULT_HTTP_SESSION_STORE = "local";
+    public static final String DEFAULT_HTTP_SERVER_KEYSTORE = "server-keystore.jks";
+    public static final String DEFAULT_HTTP_SERVER_KEYSTORE_PASSWORD = "secret4321";
+
+    private static final int DEFAULT_PAGES_PAGE_SIZE = 100;
+    private static final int MAX_PAGES_PAGE_SIZE = 1000;
+    private static final int DEFAULT_PAGES_BATCH_MAX_SIZE = 1000;
+    private static final int DEFAULT_PAGES_IMPORT_BATCH_SIZE = 500;
+    private static final int DEFAULT_SEARCH_PAGE_SIZE = 20;
+    private static final int DEFAULT_COMPLETION_SIZE = 10;
+    private static final int MAX_SEARCH_PAGE_SIZE = 100;
+    private static final List<String> SESSION_PATHS = Arrays.asList(
+            "/", "/index", "/wiki/*", "/action/*", "/login", "/login-auth", "/logout");
+    private static final String SESSION_MAP_NAME = "wiki.sessions";
+    private static final String APP_PATH = "/app/";
 
     //private String wikiDbQueue = "wikidb.queue";
     private FreeMarkerTemplateEngine templateEngine;
     private WikiDatabaseService dbService;
+    private MarkdownCache markdownCache;
+    private MarkdownRenderer markdownRenderer;
+    private MarkdownPreview markdownPreview;
+    private WikiBackup wikiBackup;
+    private String pageTemplateTag;
+    private PermissionCache permissionCache;
+    private CompressedPages compressedPages;
+    private StaticAssets staticAssets;
 
     @Override
     public void start(Promise<Void> promise) throws Exception {
         String wikiDbQueue = config().getString(CONFIG_WIKIDB_QUEUE, "wikidb.queue");
 //        dbService = (WikiDatabaseService) io.vertx.starter.database.WikiDatabaseService.createProxy(vertx.getDelegate(), wikiDbQueue);
-        dbService = WikiDatabaseService.createProxy(vertx, wikiDbQueue);
+        if (config().getBoolean(CONFIG_WIKIDB_LOCAL_CALLS, true)) {
+            dbService = WikiDatabaseService.createLocalProxy(vertx, wikiDbQueue);
+        } else {
+            dbService = WikiDatabaseService.createProxy(vertx, wikiDbQueue);
+        }
+        markdownRenderer = MarkdownRenderer.shared(vertx, config());
+        markdownCache = markdownRenderer.cache();
+        markdownPreview = MarkdownPreview.shared(vertx, config());
+        wikiBackup = WikiBackup.create(vertx, dbService, config());
+        compressedPages = CompressedPages.shared(vertx, config());
 
-        HttpServer server = vertx.createHttpServer();
+        HttpServer server = vertx.createHttpServer(createServerOptions());
 //        HttpServer server = vertx.createHttpServer(new HttpServerOptions()
 //                .setSsl(true)
 //                .setKeyStoreOptions(new JksOptions()
@@ -133,20 +193,33 @@ public class HttpServerVerticle extends AbstractVerticle {
                 .put("max_pool_size", config().getInteger(CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, DatabaseConstants.DEFAULT_JDBC_MAX_POOL_SIZE))); // 30
 
         JDBCAuth auth = JDBCAuth.create(vertx, dbClient);
+        permissionCache = PermissionCache.shared(vertx, dbClient, config());
+        vertx.eventBus().<String>consumer(PermissionCache.INVALIDATION_ADDRESS, message -> permissionCache.invalidate(message.body()));
+        WikiAuth sessionAuth = new WikiAuth(auth, permissionCache);
 
         Router router = Router.router(vertx);
         
-        router.route().handler(CookieHandler.create());
-        router.route().handler(BodyHandler.create());
-        router.route().handler(SessionHandler.create(LocalSessionStore.create(vertx)));
-        router.route().handler(UserSessionHandler.create(auth));
+        // Sessions only for the form login pages, the static files, the event bus bridge and the
+        // JWT authenticated API never touch the session store
+        CookieHandler cookieHandler = CookieHandler.create();
+        SessionHandler sessionHandler = SessionHandler.create(createSessionStore());
+        UserSessionHandler userSessionHandler = UserSessionHandler.create(sessionAuth);
+        for (String path : SESSION_PATHS) {
+            router.route(path).handler(cookieHandler);
+            router.route(path).handler(sessionHandler);
+            router.route(path).handler(userSessionHandler);
+        }
+        router.post("/action/*").handler(BodyHandler.create());
+        router.post("/login-auth").handler(BodyHandler.create());
 
-        AuthHandler authHandler = RedirectAuthHandler.create(auth, "/login");
+        AuthHandler authHandler = RedirectAuthHandler.create(sessionAuth, "/login");
         router.route("/").handler(authHandler);
+        router.route("/index").handler(authHandler);
         router.route("/wiki/*").handler(authHandler);
         router.route("/action/*").handler(authHandler);
 
 //        router.get("/").handler(this::indexHandler);
+        router.get("/index").handler(this::indexHandler);
         router.get("/wiki/:page").handler(this::pageRenderingHandler);
         router.post("/action/save").handler(this::pageUpdateHandler);
         router.post("/action/create").handler(this::pageCreateHandler);
@@ -154,7 +227,7 @@ public class HttpServerVerticle extends AbstractVerticle {
         router.post("/action/delete").handler(this::pageDeletionHandler);
         
         router.get("/login").handler(this::loginHandler);
-        router.post("/login-auth").handler(FormLoginHandler.create(auth));
+        router.post("/login-auth").handler(FormLoginHandler.create(sessionAuth));
 
         router.get("/logout").handler(context -> {
             context.clearUser();
@@ -174,11 +247,11 @@ public class HttpServerVerticle extends AbstractVerticle {
 //        router.get("/backup").handler(this::backupHandler);
         
         Router apiRouter = Router.router(vertx);
-        JWTAuth jwtAuth = JWTAuth.create(vertx, new JWTAuthOptions()
+        JWTAuth jwtAuth = CachingJWTAuth.create(JWTAuth.create(vertx, new JWTAuthOptions()
                 .setKeyStore(new KeyStoreOptions()
                         .setPath("keystore.jceks")
                         .setType("jceks")
-                        .setPassword("secret321jwt")));
+                        .setPassword("secret321jwt"))), config());
 
         apiRouter.route().handler(JWTAuthHandler.create(jwtAuth, "/api/token"));
         apiRouter.get("/token").handler(context -> {
@@ -210,21 +283,18 @@ public class HttpServerVerticle extends AbstractVerticle {
             auth.authenticate(creds, authResult -> {
                 if (authResult.succeeded()) {
                     User user = authResult.result();
-                    user.isAuthorized("create", canCreate -> {
-                        user.isAuthorized("delete", canDelete -> {
-                            user.isAuthorized("update", canUpdate -> {
-                                String token = jwtAuth.generateToken(
-                                        new JsonObject()
-                                                .put("username", context.request().getHeader("login"))
-                                                .put("canCreate", canCreate.succeeded() && canCreate.result())
-                                                .put("canDelete", canDelete.succeeded() && canDelete.result())
-                                                .put("canUpdate", canUpdate.succeeded() && canUpdate.result()),
-                                        new JWTOptions()
-                                                .setSubject("Wiki API")
-                                                .setIssuer("Vert.x"));
-                                context.response().putHeader("Content-Type", "text/plain").end(token);
-                            });
-                        });
+                    permissionCache.authorities(user.principal().getString("username"), perms -> {
+                        Set<String> granted = perms.succeeded() ? perms.result() : Collections.emptySet();
+                        String token = jwtAuth.generateToken(
+                                new JsonObject()
+                                        .put("username", context.request().getHeader("login"))
+                                        .put("canCreate", granted.contains("create"))
+                                        .put("canDelete", granted.contains("delete"))
+                                        .put("canUpdate", granted.contains("update")),
+                                new JWTOptions()
+                                        .setSubject("Wiki API")
+                                        .setIssuer("Vert.x"));
+                        context.response().putHeader("Content-Type", "text/plain").end(token);
                     });
                 } else {
                     context.fail(401);
@@ -232,53 +302,185 @@ public class HttpServerVerticle extends AbstractVerticle {
             });
         });
         apiRouter.get("/pages").handler(this::apiRoot);
+        apiRouter.get("/pages/names").handler(this::apiCompletePageNames);
         apiRouter.get("/pages/:id").handler(this::apiGetPage);
+        apiRouter.get("/pages/:id/revisions").handler(this::apiPageRevisions);
+        apiRouter.get("/pages/:id/revisions/:version").handler(this::apiPageRevision);
+        apiRouter.get("/search").handler(this::apiSearch);
+        // The import reads its body as a stream, it must come before the body handler
+        apiRouter.post("/pages/import").handler(this::apiImportPages);
         apiRouter.post().handler(BodyHandler.create());
         apiRouter.post("/pages").handler(this::apiCreatePage);
+        apiRouter.post("/pages/batch").handler(this::apiBatchPages);
         apiRouter.put().handler(BodyHandler.create());
         apiRouter.put("/pages/:id").handler(this::apiUpdatePage);
         apiRouter.delete("/pages/:id").handler(this::apiDeletePage);
         router.mountSubRouter("/api", apiRouter);
         
         // Static file
-        router.get("/app/*").handler(StaticHandler.create().setCachingEnabled(false));
+        router.get(APP_PATH + "*").handler(context -> staticAssets.serve(context, context.normalisedPath().substring(APP_PATH.length())));
         router.get("/").handler(context -> context.reroute("/app/index.html"));
         
+        router.post("/app/markdown").handler(BodyHandler.create());
         router.post("/app/markdown").handler(context -> {
-            String html = Processor.process(context.getBodyAsString());
-            context.response()
-                    .putHeader("Content-Type", "text/html")
-                    .setStatusCode(200)
-                    .end(html);
+            markdownRenderer.render(context.getBodyAsString(), ar -> {
+                if (ar.succeeded()) {
+                    context.response()
+                            .putHeader("Content-Type", "text/html")
+                            .setStatusCode(200)
+                            .end(ar.result());
+                } else {
+                    context.fail(renderFailureStatus(ar.cause()));
+                }
+            });
         });
         
         // WebSocket
         SockJSHandler sockJSHandler = SockJSHandler.create(vertx);
         BridgeOptions bridgeOptions = new BridgeOptions()
                 .addInboundPermitted(new PermittedOptions().setAddress("app.markdown"))
+                .addInboundPermitted(new PermittedOptions().setAddress("app.markdown.preview"))
                 .addOutboundPermitted(new PermittedOptions().setAddress("page.saved"));
-        sockJSHandler.bridge(bridgeOptions);
+        // The preview sessions opened through a socket are dropped with it, rather than left to the LRU
+        Map<SockJSSocket, Set<String>> previewClients = new HashMap<>();
+        sockJSHandler.bridge(bridgeOptions, event -> {
+            if (event.type() == BridgeEventType.SEND && "app.markdown.preview".equals(event.getRawMessage().getString("address"))) {
+                Object body = event.getRawMessage().getValue("body");
+                if (body instanceof JsonObject && ((JsonObject) body).getValue("client") instanceof String) {
+                    previewClients.computeIfAbsent(event.socket(), k -> new HashSet<>()).add(((JsonObject) body).getString("client"));
+                }
+            } else if (event.type() == BridgeEventType.SOCKET_CLOSED) {
+                Set<String> clients = previewClients.remove(event.socket());
+                if (clients != null) {
+                    clients.forEach(markdownPreview::forget);
+                }
+            }
+            event.complete(true);
+        });
         router.route("/eventbus/*").handler(sockJSHandler);
         
         vertx.eventBus().<String>consumer("app.markdown", msg -> {
-            String html = Processor.process(msg.body());
-            msg.reply(html);
+            markdownRenderer.render(msg.body(), ar -> {
+                if (ar.succeeded()) {
+                    msg.reply(ar.result());
+                } else {
+                    msg.fail(renderFailureStatus(ar.cause()), ar.cause().getMessage());
+                }
+            });
+        });
+        
+        // Incremental preview: { client, base, text } -> block patch, coalesced per client, see MarkdownPreview
+        vertx.eventBus().<JsonObject>consumer("app.markdown.preview", msg -> {
+            JsonObject body = msg.body();
+            String client = body.getString("client");
+            if (client == null) {
+                msg.fail(400, "Missing client id");
+                return;
+            }
+            markdownPreview.submit(client, body.getLong("base", 0L), body.getString("text", ""), ar -> {
+                if (ar.succeeded()) {
+                    msg.reply(ar.result());
+                } else {
+                    msg.fail(renderFailureStatus(ar.cause()), ar.cause().getMessage());
+                }
+            });
         });
 
         
         templateEngine = FreeMarkerTemplateEngine.create(vertx);
+        // Rendered pages also depend on the templates, deploying new ones changes the page ETags
+        pageTemplateTag = "html." + ConditionalGet.digest(Stream.of("header.ftl", "page.ftl", "footer.ftl")
+                .map(name -> vertx.fileSystem().readFileBlocking("templates/" + name).toString())
+                .collect(Collectors.joining()));
 
         int portNumber = config().getInteger(CONFIG_HTTP_SERVER_PORT, 8080);
-        server.requestHandler(router)
-                .listen(portNumber, ar -> {
-                    if (ar.succeeded()) {
-                        LOGGER.info("HTTP server running on port " + portNumber);
-                        promise.complete();
-                    } else {
-                        LOGGER.error("Could not start a HTTP server", ar.cause());
-                        promise.fail(ar.cause());
-                    }
-                });
+        StaticAssets.shared(vertx, config(), APP_PATH, assets -> {
+            if (assets.failed()) {
+                LOGGER.error("Could not prepare the static assets", assets.cause());
+                promise.fail(assets.cause());
+                return;
+            }
+            staticAssets = assets.result();
+            server.requestHandler(router)
+                    .listen(portNumber, ar -> {
+                        if (ar.succeeded()) {
+                            LOGGER.info("HTTP server running on port " + portNumber);
+                            promise.complete();
+                        } else {
+                            LOGGER.error("Could not start a HTTP server", ar.cause());
+                            // A verticle failing to start is not stopped
+                            staticAssets.release(vertx, released -> promise.fail(ar.cause()));
+                        }
+                    });
+        });
+    }
+    
+    @Override
+    public void stop(Promise<Void> promise) {
+        if (staticAssets == null) {
+            promise.complete();
+        } else {
+            staticAssets.release(vertx, promise);
+        }
+    }
+    
+    /**
+     * Server options of the {@code http.server.ssl} configuration: plain HTTP/1.1 by default,
+     * otherwise TLS with the {@code http.server.keystore} key and HTTP/2 negotiated with ALPN, unless
+     * {@code http.server.http2} is false. {@code http.server.openssl} swaps the JDK engine for
+     * OpenSSL when netty-tcnative is on the classpath, see the {@code openssl} Maven profile.
+     * Both engines keep a cache of TLS sessions, so that returning clients resume their session
+     * instead of going through a full handshake.
+     */
+    private HttpServerOptions createServerOptions() {
+        // Gzip uploads, e.g. a backup archive sent to the page import, are inflated as they arrive and
+        // responses are compressed as negotiated, but for the pages and assets that come precompressed.
+        // Files are only sent zero-copy without that compression and without TLS. Over HTTP/2 there is
+        // no such compression, see below.
+        HttpServerOptions options = new HttpServerOptions()
+                .setDecompressionSupported(true)
+                .setCompressionSupported(config().getBoolean(CONFIG_HTTP_SERVER_COMPRESSION, true));
+        if (!config().getBoolean(CONFIG_HTTP_SERVER_SSL, false)) {
+            return options;
+        }
+        options.setSsl(true)
+                .setKeyStoreOptions(new JksOptions()
+                        .setPath(config().getString(CONFIG_HTTP_SERVER_KEYSTORE, DEFAULT_HTTP_SERVER_KEYSTORE))
+                        .setPassword(config().getString(CONFIG_HTTP_SERVER_KEYSTORE_PASSWORD, DEFAULT_HTTP_SERVER_KEYSTORE_PASSWORD)));
+        if (config().getBoolean(CONFIG_HTTP_SERVER_HTTP2, true)) {
+            // The HTTP/2 compressor gzips every response with a gzip Content-Encoding, the precompressed
+            // pages and assets included, it would compress them twice
+            options.setUseAlpn(true).setAlpnVersions(Arrays.asList(HttpVersion.HTTP_2, HttpVersion.HTTP_1_1))
+                    .setCompressionSupported(false);
+        }
+        if (config().getBoolean(CONFIG_HTTP_SERVER_OPENSSL, false)) {
+            if (OpenSSLEngineOptions.isAvailable()) {
+                options.setOpenSslEngineOptions(new OpenSSLEngineOptions().setSessionCacheEnabled(true));
+            } else {
+                LOGGER.warn("OpenSSL is not available, the JDK TLS engine is used instead");
+            }
+        }
+        return options;
+    }
+    
+    /**
+     * Session store of the {@code http.session.store} configuration: {@code local} (default) keeps
+     * the sessions in this JVM, {@code clustered} shares them with the other nodes of the cluster
+     * so that any node can serve a logged in browser.
+     */
+    private SessionStore createSessionStore() {
+        String store = config().getString(CONFIG_HTTP_SESSION_STORE, DEFAULT_HTTP_SESSION_STORE);
+        switch (store) {
+            case "local":
+                return LocalSessionStore.create(vertx);
+            case "clustered":
+                if (!vertx.isClustered()) {
+                    throw new IllegalStateException("The clustered session store needs a clustered Vert.x, start with -cluster");
+                }
+                return ClusteredSessionStore.create(vertx, SESSION_MAP_NAME);
+            default:
+                throw new IllegalArgumentException("Unknown session store: " + store);
+        }
     }
     
     private void loginHandler(RoutingContext context) {
@@ -294,12 +496,18 @@ public class HttpServerVerticle extends AbstractVerticle {
     }
     
     private void indexHandler(RoutingContext context) {
-        context.user().isAuthorized("create", res -> {
+        permissionCache.isAuthorized(context.user(), "create", res -> {
             boolean canCreatePage = res.succeeded() && res.result();
-            dbService.fetchAllPages(reply -> {
+            String after = context.request().getParam("after");
+            dbService.fetchPageSummaries(after, config().getInteger(CONFIG_PAGES_PAGE_SIZE, DEFAULT_PAGES_PAGE_SIZE), reply -> {
                 if (reply.succeeded()) {
+                    List<String> pages = reply.result().getJsonArray("pages")
+                            .stream()
+                            .map(page -> ((JsonObject) page).getString("name"))
+                            .collect(Collectors.toList());
                     context.put("title", "Wiki home");
-                    context.put("pages", reply.result().getList());
+                    context.put("pages", pages);
+                    context.put("nextPage", reply.result().getString("next", ""));
                     context.put("canCreatePage", canCreatePage);
                     context.put("username", context.user().principal().getString("username"));
                     templateEngine.render(context.data(), "templates/index.ftl", ar -> {
@@ -355,21 +563,35 @@ public class HttpServerVerticle extends AbstractVerticle {
 
                 JsonObject payLoad = reply.result();
                 boolean found = payLoad.getBoolean("found");
+                int id = payLoad.getInteger("id", -1);
+                String tag = ConditionalGet.pageTag(id, payLoad.getInteger("version", 0), pageTemplateTag);
+                if (found && (ConditionalGet.notModified(context, tag, payLoad.getLong("modified", 0L))
+                        || sendCompressedPage(context, tag, "text/html"))) {
+                    return;
+                }
                 String rawContent = payLoad.getString("rawContent", EMPTY_PAGE_MARKDOWN);
-                context.put("title", requestedPage);
-                context.put("id", payLoad.getInteger("id", -1));
-                context.put("newPage", found ? "no" : "yes");
-                context.put("rawContent", rawContent);
-                context.put("content", Processor.process(rawContent));
-                context.put("timestamp", new Date().toString());
-
-                templateEngine.render(context.data(), "templates/page.ftl", ar -> {
-                    if (ar.succeeded()) {
-                        context.response().putHeader("Content-Type", "text/html");
-                        context.response().end(ar.result());
-                    } else {
-                        context.fail(ar.cause());
+                renderPageHtml(id, rawContent, payLoad.getString("html"), html -> {
+                    if (html.failed()) {
+                        context.fail(renderFailureStatus(html.cause()));
+                        return;
                     }
+                    context.put("title", requestedPage);
+                    context.put("id", id);
+                    context.put("newPage", found ? "no" : "yes");
+                    context.put("rawContent", rawContent);
+                    context.put("content", html.result());
+                    context.put("timestamp", new Date().toString());
+
+                    templateEngine.render(context.data(), "templates/page.ftl", ar -> {
+                        if (ar.failed()) {
+                            context.fail(ar.cause());
+                        } else if (found) {
+                            endPage(context, tag, "text/html", ar.result().toString());
+                        } else {
+                            context.response().putHeader("Content-Type", "text/html");
+                            context.response().end(ar.result());
+                        }
+                    });
                 });
 
             } else {
@@ -378,6 +600,61 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
 
+    /*
+     * Sends the cached gzip of a page version to a client accepting it, false when the page has to
+     * be rendered.
+     */
+    private boolean sendCompressedPage(RoutingContext context, String tag, String contentType) {
+        Buffer gzipped = CompressedPages.acceptsGzip(context.request()) ? compressedPages.get(tag) : null;
+        if (gzipped == null) {
+            return false;
+        }
+        context.response().putHeader("Vary", "Accept-Encoding");
+        context.response().putHeader("Content-Type", contentType);
+        context.response().putHeader("Content-Encoding", "gzip");
+        context.response().end(gzipped);
+        return true;
+    }
+
+    /*
+     * Ends the response of a page version, gzipped only once for all the clients accepting it.
+     */
+    private void endPage(RoutingContext context, String tag, String contentType, String body) {
+        context.response().putHeader("Vary", "Accept-Encoding");
+        context.response().putHeader("Content-Type", contentType);
+        if (!CompressedPages.acceptsGzip(context.request())) {
+            context.response().end(body);
+            return;
+        }
+        compressedPages.compress(tag, body, gzipped -> {
+            if (gzipped.failed()) {
+                context.fail(gzipped.cause());
+            } else if (!context.response().closed()) {
+                context.response().putHeader("Content-Encoding", "gzip");
+                context.response().end(gzipped.result());
+            }
+        });
+    }
+
+    /*
+     * Pages carry the HTML rendered when they were saved, only the placeholder of a new page
+     * (or a row that was never rendered) goes through the rendering pool.
+     */
+    private void renderPageHtml(int id, String markdown, String storedHtml, Handler<AsyncResult<String>> handler) {
+        if (storedHtml != null) {
+            handler.handle(Future.succeededFuture(storedHtml));
+        } else {
+            markdownRenderer.render(id, markdown, handler);
+        }
+    }
+
+    private int renderFailureStatus(Throwable cause) {
+        if (cause instanceof MarkdownRenderException) {
+            return ((MarkdownRenderException) cause).statusCode();
+        }
+        return 500;
+    }
+
     private void pageUpdateHandler(RoutingContext context) {
         String title = context.request().getParam("title");
 
@@ -395,7 +672,9 @@ public class HttpServerVerticle extends AbstractVerticle {
         if ("yes".equals(context.request().getParam("newPage"))) {
             dbService.createPage(title, markdown, handler);
         } else {
-            dbService.savePage(Integer.valueOf(context.request().getParam("id")), markdown, handler);
+            int id = Integer.valueOf(context.request().getParam("id"));
+            markdownCache.invalidate(id);
+            dbService.savePage(id, markdown, handler);
         }
     }
 
@@ -411,10 +690,12 @@ public class HttpServerVerticle extends AbstractVerticle {
     }
 
     private void pageDeletionHandler(RoutingContext context) {
-        context.user().isAuthorized("delete", res -> {
+        permissionCache.isAuthorized(context.user(), "delete", res -> {
             if (res.succeeded() && res.result()) {
                 // Original code:
-                dbService.deletePage(Integer.valueOf(context.request().getParam("id")), reply -> {
+                int id = Integer.valueOf(context.request().getParam("id"));
+                markdownCache.invalidate(id);
+                dbService.deletePage(id, reply -> {
                     if (reply.succeeded()) {
                         context.response().setStatusCode(303);
                         context.response().putHeader("Location", "/");
@@ -445,75 +726,39 @@ public class HttpServerVerticle extends AbstractVerticle {
     //</editor-fold>
     
     private void backupHandler(RoutingContext context) {
-        dbService.fetchAllPagesData(reply -> {
-            if (reply.succeeded()) {
-                JsonArray filesObject = new JsonArray();
-                JsonObject payload = new JsonObject()
-                        .put("files", filesObject)
-                        .put("language", "plaintext")
-                        .put("title", "vertx-wiki-backup")
-                        .put("public", true);
-
-                reply.result()
-                        .forEach(page -> {
-                            JsonObject fileObject = new JsonObject();
-                            fileObject.put("name", page.getString("NAME"));
-                            fileObject.put("content", page.getString("CONTENT"));
-                            filesObject.add(fileObject);
-                        });
-
-                WebClient webClient = WebClient.create(vertx, new WebClientOptions().setSsl(true).setUserAgent("vert-x3"));
-                webClient.post(443, "snippets.glot.io", "/snippets")
-                        .putHeader("Content-Type", "application/json")
-                        .as(BodyCodec.jsonObject())
-                        .sendJsonObject(payload, ar -> {
-                            if (ar.succeeded()) {
-                                HttpResponse<JsonObject> response = ar.result();
-                                if (response.statusCode() == 200) {
-                                    String url = "https://glot.io/snippets/" + response.body().getString("id");
-                                    context.put("backup_gist_url", url); // https://glot.io/snippets/fgqiqs2j5p
-                                    indexHandler(context);
-                                } else {
-                                    StringBuilder message = new StringBuilder()
-                                            .append("Could not backup the wiki: ")
-                                            .append(response.statusMessage());
-                                    JsonObject body = response.body();
-                                    if (body != null) {
-                                        message.append(System.getProperty("line.separator"))
-                                                .append(body.encodePrettily());
-                                    }
-                                    LOGGER.error(message.toString());
-                                    context.fail(502);
-                                }
-                            } else {
-                                Throwable err = ar.cause();
-                                LOGGER.error("HTTP Client error", err);
-                                context.fail(err);
-                            }
-                        });
+        boolean incremental = Boolean.parseBoolean(context.request().getParam("incremental"));
+        wikiBackup.run(incremental, ar -> {
+            if (ar.succeeded()) {
+                context.put("backup_location", ar.result());
+                indexHandler(context);
             } else {
-                context.fail(reply.cause());
+                LOGGER.error("Could not backup the wiki", ar.cause());
+                context.fail(ar.cause() instanceof BackupException ? ((BackupException) ar.cause()).statusCode() : 500);
             }
         });
     }
     
     // API
     private void apiRoot(RoutingContext context) {
-        dbService.fetchAllPagesData(reply -> {
+        String after = context.request().getParam("after");
+        String limit = context.request().getParam("limit");
+        if (after != null || limit != null) {
+            apiPageSummaries(context, after, limit);
+            return;
+        }
+        dbService.fetchAllPageSummaries(reply -> {
             JsonObject response = new JsonObject();
             if (reply.succeeded()) {
-                List<JsonObject> pages = reply.result()
-                        .stream()
-                        .map(obj -> new JsonObject()
-                        .put("id", obj.getInteger("ID"))
-                        .put("name", obj.getString("NAME")))
-                        .collect(Collectors.toList());
                 response
                         .put("success", true)
-                        .put("pages", pages);
+                        .put("pages", reply.result());
+                String body = response.encode();
+                if (ConditionalGet.notModified(context, ConditionalGet.contentTag(body), 0)) {
+                    return;
+                }
                 context.response().setStatusCode(200);
                 context.response().putHeader("Content-Type", "application/json");
-                context.response().end(response.encode());
+                context.response().end(body);
             } else {
                 response
                         .put("success", false)
@@ -525,6 +770,137 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
     
+    /*
+     * GET /api/pages?after=<name>&limit=<n>: keyset pagination on the page name,
+     * the "next" field of the response is the cursor of the following page.
+     */
+    private void apiPageSummaries(RoutingContext context, String after, String limitParam) {
+        int limit;
+        try {
+            limit = limitParam == null ? DEFAULT_PAGES_PAGE_SIZE : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 1 || limit > MAX_PAGES_PAGE_SIZE) {
+            context.response().setStatusCode(400);
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(new JsonObject()
+                    .put("success", false)
+                    .put("error", "limit must be between 1 and " + MAX_PAGES_PAGE_SIZE).encode());
+            return;
+        }
+        dbService.fetchPageSummaries(after, limit, reply -> {
+            JsonObject response = new JsonObject();
+            if (reply.succeeded()) {
+                response
+                        .put("success", true)
+                        .put("pages", reply.result().getJsonArray("pages"));
+                if (reply.result().containsKey("next")) {
+                    response.put("next", reply.result().getString("next"));
+                }
+                String body = response.encode();
+                if (ConditionalGet.notModified(context, ConditionalGet.contentTag(body), 0)) {
+                    return;
+                }
+                context.response().setStatusCode(200);
+                context.response().putHeader("Content-Type", "application/json");
+                context.response().end(body);
+                return;
+            } else {
+                response
+                        .put("success", false)
+                        .put("error", reply.cause().getMessage());
+                context.response().setStatusCode(500);
+            }
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(response.encode());
+        });
+    }
+    
+    /*
+     * GET /api/pages/names?prefix=<start>&limit=<n>: the pages whose name starts with the prefix,
+     * answered from the page catalog for pickers completing a name as it is typed.
+     */
+    private void apiCompletePageNames(RoutingContext context) {
+        String prefix = context.request().getParam("prefix");
+        String limitParam = context.request().getParam("limit");
+        int limit;
+        try {
+            limit = limitParam == null ? DEFAULT_COMPLETION_SIZE : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            limit = -1;
+        }
+        if (limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            context.response().setStatusCode(400);
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(new JsonObject()
+                    .put("success", false)
+                    .put("error", "limit must be between 1 and " + MAX_SEARCH_PAGE_SIZE).encode());
+            return;
+        }
+        dbService.fetchPageSummariesWithPrefix(prefix == null ? "" : prefix, limit, reply -> {
+            JsonObject response = new JsonObject();
+            if (reply.succeeded()) {
+                response
+                        .put("success", true)
+                        .put("pages", reply.result());
+                context.response().setStatusCode(200);
+            } else {
+                response
+                        .put("success", false)
+                        .put("error", reply.cause().getMessage());
+                context.response().setStatusCode(500);
+            }
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(response.encode());
+        });
+    }
+    
+    /*
+     * GET /api/search?q=<terms>&offset=<n>&limit=<n>: pages matching any of the terms, best first.
+     */
+    private void apiSearch(RoutingContext context) {
+        String query = context.request().getParam("q");
+        String offsetParam = context.request().getParam("offset");
+        String limitParam = context.request().getParam("limit");
+        int offset;
+        int limit;
+        try {
+            offset = offsetParam == null ? 0 : Integer.parseInt(offsetParam);
+            limit = limitParam == null ? DEFAULT_SEARCH_PAGE_SIZE : Integer.parseInt(limitParam);
+        } catch (NumberFormatException e) {
+            offset = -1;
+            limit = -1;
+        }
+        if (query == null || query.trim().isEmpty() || offset < 0 || limit < 1 || limit > MAX_SEARCH_PAGE_SIZE) {
+            context.response().setStatusCode(400);
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(new JsonObject()
+                    .put("success", false)
+                    .put("error", "q is required, offset must be positive and limit between 1 and " + MAX_SEARCH_PAGE_SIZE).encode());
+            return;
+        }
+        int first = offset;
+        dbService.searchPages(query, offset, limit, reply -> {
+            JsonObject response = new JsonObject();
+            if (reply.succeeded()) {
+                response
+                        .put("success", true)
+                        .put("total", reply.result().getInteger("total"))
+                        .put("offset", first)
+                        .put("results", reply.result().getJsonArray("results"));
+                context.response().setStatusCode(200);
+            } else {
+                response
+                        .put("success", false)
+                        .put("error", reply.cause().getMessage());
+                context.response().setStatusCode(500);
+            }
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(response.encode());
+        });
+    }
+    
     private void apiGetPage(RoutingContext context) {
         int id = Integer.valueOf(context.request().getParam("id"));
         dbService.fetchPageById(id, reply -> {
@@ -532,15 +908,33 @@ public class HttpServerVerticle extends AbstractVerticle {
             if (reply.succeeded()) {
                 JsonObject dbObject = reply.result();
                 if (dbObject.getBoolean("found")) {
-                    JsonObject payload = new JsonObject()
-                            .put("name", dbObject.getString("name"))
-                            .put("id", dbObject.getInteger("id"))
-                            .put("markdown", dbObject.getString("content"))
-                            .put("html", Processor.process(dbObject.getString("content")));
-                    response
-                            .put("success", true)
-                            .put("page", payload);
-                    context.response().setStatusCode(200);
+                    String tag = ConditionalGet.pageTag(id, dbObject.getInteger("version", 0), "json");
+                    if (ConditionalGet.notModified(context, tag, dbObject.getLong("modified", 0L))
+                            || sendCompressedPage(context, tag, "application/json")) {
+                        return;
+                    }
+                    renderPageHtml(id, dbObject.getString("content"), dbObject.getString("html"), html -> {
+                        if (html.succeeded()) {
+                            JsonObject payload = new JsonObject()
+                                    .put("name", dbObject.getString("name"))
+                                    .put("id", dbObject.getInteger("id"))
+                                    .put("markdown", dbObject.getString("content"))
+                                    .put("html", html.result());
+                            response
+                                    .put("success", true)
+                                    .put("page", payload);
+                            endPage(context, tag, "application/json", response.encode());
+                            return;
+                        } else {
+                            response
+                                    .put("success", false)
+                                    .put("error", html.cause().getMessage());
+                            context.response().setStatusCode(renderFailureStatus(html.cause()));
+                        }
+                        context.response().putHeader("Content-Type", "application/json");
+                        context.response().end(response.encode());
+                    });
+                    return;
                 } else {
                     context.response().setStatusCode(404);
                     response
@@ -558,7 +952,77 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
     
+    /*
+     * GET /api/pages/:id/revisions: the revisions kept for the page, latest first.
+     */
+    private void apiPageRevisions(RoutingContext context) {
+        int id = Integer.valueOf(context.request().getParam("id"));
+        dbService.fetchPageRevisions(id, reply -> {
+            JsonObject response = new JsonObject();
+            if (reply.succeeded() && reply.result().isEmpty()) {
+                context.response().setStatusCode(404);
+                response
+                        .put("success", false)
+                        .put("error", "There is no revision of page ID " + id);
+            } else if (reply.succeeded()) {
+                context.response().setStatusCode(200);
+                response
+                        .put("success", true)
+                        .put("revisions", new JsonArray(reply.result()));
+            } else {
+                context.response().setStatusCode(500);
+                response
+                        .put("success", false)
+                        .put("error", reply.cause().getMessage());
+            }
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(response.encode());
+        });
+    }
+    
+    /*
+     * GET /api/pages/:id/revisions/:version: the markdown of a revision. A revision never changes once
+     * written, so it is tagged by its version only.
+     */
+    private void apiPageRevision(RoutingContext context) {
+        int id = Integer.valueOf(context.request().getParam("id"));
+        int version = Integer.valueOf(context.request().getParam("version"));
+        dbService.fetchPageRevision(id, version, reply -> {
+            JsonObject response = new JsonObject();
+            if (reply.succeeded() && reply.result().getBoolean("found")) {
+                JsonObject revision = reply.result();
+                if (ConditionalGet.notModified(context,
+                        ConditionalGet.pageTag(id, version, "revision"), revision.getLong("modified", 0L))) {
+                    return;
+                }
+                context.response().setStatusCode(200);
+                response
+                        .put("success", true)
+                        .put("revision", new JsonObject()
+                                .put("id", id)
+                                .put("version", version)
+                                .put("modified", revision.getLong("modified"))
+                                .put("markdown", revision.getString("content")));
+            } else if (reply.succeeded()) {
+                context.response().setStatusCode(404);
+                response
+                        .put("success", false)
+                        .put("error", "There is no revision " + version + " of page ID " + id);
+            } else {
+                context.response().setStatusCode(500);
+                response
+                        .put("success", false)
+                        .put("error", reply.cause().getMessage());
+            }
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(response.encode());
+        });
+    }
+    
     private void apiCreatePage(RoutingContext context) {
+        if (!hasClaim(context, "canCreate")) {
+            return;
+        }
         JsonObject page = context.getBodyAsJson();
         if (!validateJsonPageDocument(context, page, "name", "markdown")) {
             return;
@@ -592,11 +1056,15 @@ public class HttpServerVerticle extends AbstractVerticle {
     }
     
     private void apiUpdatePage(RoutingContext context) {
+        if (!hasClaim(context, "canUpdate")) {
+            return;
+        }
         int id = Integer.valueOf(context.request().getParam("id"));
         JsonObject page = context.getBodyAsJson();
         if (!validateJsonPageDocument(context, page, "markdown")) {
             return;
         }
+        markdownCache.invalidate(id);
         dbService.savePage(id, page.getString("markdown"), reply -> {
             handleSimpleDbReply(context, reply);
             if (reply.succeeded()) {
@@ -608,6 +1076,113 @@ public class HttpServerVerticle extends AbstractVerticle {
         });
     }
     
+    /**
+     * Create and update pages in bulk: {@code {"create": [{name, markdown}], "update": [{id, markdown}]}}.
+     * Each list is written in one transaction, the creations first.
+     */
+    private void apiBatchPages(RoutingContext context) {
+        JsonObject batch = context.getBodyAsJson();
+        List<JsonObject> creates = batchEntries(batch, "create");
+        List<JsonObject> updates = batchEntries(batch, "update");
+        if (!creates.isEmpty() && !hasClaim(context, "canCreate")) {
+            return;
+        }
+        if (!updates.isEmpty() && !hasClaim(context, "canUpdate")) {
+            return;
+        }
+        int maxSize = config().getInteger(CONFIG_PAGES_BATCH_MAX_SIZE, DEFAULT_PAGES_BATCH_MAX_SIZE);
+        if (creates.size() + updates.size() > maxSize) {
+            context.response().setStatusCode(413);
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(new JsonObject()
+                    .put("success", false)
+                    .put("error", "At most " + maxSize + " pages per batch").encode());
+            return;
+        }
+        boolean valid = creates.stream().allMatch(page -> page.getValue("name") instanceof String && page.getValue("markdown") instanceof String)
+                && updates.stream().allMatch(page -> page.getValue("id") instanceof Integer && page.getValue("markdown") instanceof String);
+        if (!valid || creates.size() + updates.size() == 0) {
+            LOGGER.error("Bad page batch JSON payload from " + context.request().remoteAddress());
+            context.response().setStatusCode(400);
+            context.response().putHeader("Content-Type", "application/json");
+            context.response().end(new JsonObject()
+                    .put("success", false)
+                    .put("error", "Bad request payload").encode());
+            return;
+        }
+        Promise<Void> created = Promise.promise();
+        if (creates.isEmpty()) {
+            created.complete();
+        } else {
+            dbService.createPages(creates, created);
+        }
+        created.future().setHandler(create -> {
+            if (create.failed() || updates.isEmpty()) {
+                handleBatchDbReply(context, create, create.succeeded() ? creates.size() : 0, 0);
+                return;
+            }
+            updates.forEach(page -> markdownCache.invalidate(page.getInteger("id")));
+            dbService.savePages(updates, reply -> {
+                handleBatchDbReply(context, reply, creates.size(), reply.succeeded() ? updates.size() : 0);
+                if (reply.succeeded()) {
+                    updates.forEach(page -> vertx.eventBus().publish("page.saved", new JsonObject()
+                            .put("id", page.getInteger("id"))
+                            .put("client", page.getString("client"))));
+                }
+            });
+        });
+    }
+    
+    private void apiImportPages(RoutingContext context) {
+        if (!hasClaim(context, "canCreate")) {
+            return;
+        }
+        new PageImport(context, dbService, config().getInteger(CONFIG_PAGES_IMPORT_BATCH_SIZE, DEFAULT_PAGES_IMPORT_BATCH_SIZE)).start();
+    }
+    
+    private List<JsonObject> batchEntries(JsonObject batch, String key) {
+        JsonArray entries = batch == null ? null : batch.getJsonArray(key);
+        if (entries == null) {
+            return Collections.emptyList();
+        }
+        List<JsonObject> pages = new ArrayList<>(entries.size());
+        for (Object entry : entries) {
+            pages.add(entry instanceof JsonObject ? (JsonObject) entry : new JsonObject());
+        }
+        return pages;
+    }
+    
+    /*
+     * The counts are those of the committed pages, a failed update still reports the pages created before.
+     */
+    private void handleBatchDbReply(RoutingContext context, AsyncResult<Void> reply, int created, int updated) {
+        JsonObject response = new JsonObject()
+                .put("success", reply.succeeded())
+                .put("created", created)
+                .put("updated", updated);
+        if (reply.failed()) {
+            response.put("error", reply.cause().getMessage());
+            context.response().setStatusCode(500);
+        }
+        context.response().putHeader("Content-Type", "application/json");
+        context.response().end(response.encode());
+    }
+    
+    /**
+     * The API permissions are claims of the JWT token, granted when the token was issued.
+     */
+    private boolean hasClaim(RoutingContext context, String claim) {
+        if (context.user().principal().getBoolean(claim, false)) {
+            return true;
+        }
+        context.response().setStatusCode(403);
+        context.response().putHeader("Content-Type", "application/json");
+        context.response().end(new JsonObject()
+                .put("success", false)
+                .put("error", "Not authorized: " + claim).encode());
+        return false;
+    }
+    
     private void handleSimpleDbReply(RoutingContext context, AsyncResult<Void> reply) {
         if (reply.succeeded()) {
             context.response().setStatusCode(200);
@@ -635,7 +1210,11 @@ public class HttpServerVerticle extends AbstractVerticle {
     
     //<editor-fold defaultstate="collapsed" desc="Code Step6">
     private void apiDeletePage(RoutingContext context) {
+        if (!hasClaim(context, "canDelete")) {
+            return;
+        }
         int id = Integer.valueOf(context.request().getParam("id"));
+        markdownCache.invalidate(id);
         dbService.deletePage(id, reply -> {
             handleSimpleDbReply(context, reply);
         });
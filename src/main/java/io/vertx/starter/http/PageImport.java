@@ -0,0 +1,154 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.DecodeException;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.parsetools.RecordParser;
+import io.vertx.ext.web.RoutingContext;
+import io.vertx.starter.database.WikiDatabaseService;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Import of the pages of a request body holding one JSON page per line, {@code {name, markdown}}.
+ * Backup archives, whose pages have a {@code content} instead, are accepted as well.
+ *
+ * Lines are parsed as the body arrives and created in batches, each in one transaction. The
+ * request is paused while a batch is written, so at most one batch is held in memory however
+ * large the upload. The import stops at the first bad line or failed batch, the pages of the
+ * batches written before are kept.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class PageImport {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PageImport.class);
+    private static final int MAX_LINE_SIZE = 16 * 1024 * 1024;
+
+    private final RoutingContext context;
+    private final WikiDatabaseService dbService;
+    private final int batchSize;
+    private final RecordParser parser;
+    private List<JsonObject> batch = new ArrayList<>();
+    private long line;
+    private long imported;
+    private boolean ended;
+    private boolean writing;
+    private boolean finished;
+
+    PageImport(RoutingContext context, WikiDatabaseService dbService, int batchSize) {
+        this.context = context;
+        this.dbService = dbService;
+        this.batchSize = batchSize;
+        this.parser = RecordParser.newDelimited("\n", context.request()).maxRecordSize(MAX_LINE_SIZE);
+    }
+
+    void start() {
+        parser.exceptionHandler(err -> {
+            LOGGER.error("Page import aborted", err);
+            finish(400, err.getMessage());
+        });
+        // When the upload ends, the parser first hands over a last line without a trailing newline
+        parser.endHandler(v -> {
+            ended = true;
+            if (!writing && !finished) {
+                write();
+            }
+        });
+        parser.handler(this::parse);
+    }
+
+    private void parse(Buffer record) {
+        line++;
+        if (finished) {
+            return;
+        }
+        String text = record.toString(StandardCharsets.UTF_8).trim();
+        if (text.isEmpty()) {
+            return;
+        }
+        JsonObject page;
+        try {
+            page = new JsonObject(text);
+        } catch (DecodeException e) {
+            finish(400, "Bad JSON page on line " + line);
+            return;
+        }
+        Object name = page.getValue("name");
+        Object markdown = page.containsKey("markdown") ? page.getValue("markdown") : page.getValue("content");
+        if (!(name instanceof String) || !(markdown instanceof String)) {
+            finish(400, "Bad page on line " + line);
+            return;
+        }
+        batch.add(new JsonObject().put("name", name).put("markdown", markdown));
+        if (batch.size() >= batchSize) {
+            write();
+        }
+    }
+
+    private void write() {
+        if (batch.isEmpty()) {
+            finish(200, null);
+            return;
+        }
+        List<JsonObject> pages = batch;
+        batch = new ArrayList<>();
+        writing = true;
+        parser.pause();
+        dbService.createPages(pages, ar -> {
+            writing = false;
+            if (ar.failed()) {
+                finish(500, "Import failed after " + imported + " pages: " + ar.cause().getMessage());
+                return;
+            }
+            imported += pages.size();
+            if (ended) {
+                write();
+            } else {
+                parser.resume();
+            }
+        });
+    }
+
+    private void finish(int status, String error) {
+        if (finished) {
+            return;
+        }
+        finished = true;
+        if (!ended) {
+            // Read the rest of the upload through, the pages are ignored
+            parser.resume();
+        }
+        if (context.response().closed()) {
+            return;
+        }
+        JsonObject response = new JsonObject()
+                .put("success", error == null)
+                .put("imported", imported);
+        if (error != null) {
+            response.put("error", error);
+        }
+        context.response().setStatusCode(status);
+        context.response().putHeader("Content-Type", "application/json");
+        context.response().end(response.encode());
+    }
+}
@@ -0,0 +1,172 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.auth.User;
+import io.vertx.ext.jdbc.JDBCClient;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Roles and permissions of the wiki users, shared by all HTTP verticles of this Vert.x instance.
+ *
+ * The authorities of a user ({@code role:<role>} and permissions, as understood by JDBCAuth) are
+ * read with a single query and kept for {@code ttl} milliseconds. Publishing a username on
+ * {@link #INVALIDATION_ADDRESS} drops the entry of that user, an empty body drops them all.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class PermissionCache implements Shareable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PermissionCache.class);
+
+    public static final String CONFIG_AUTH_PERMISSIONS_TTL = "auth.permissions.ttl";
+    public static final String CONFIG_AUTH_PERMISSIONS_MAX_ENTRIES = "auth.permissions.max_entries";
+    public static final String INVALIDATION_ADDRESS = "auth.permissions.invalidate";
+
+    public static final long DEFAULT_AUTH_PERMISSIONS_TTL = 60000;
+    public static final int DEFAULT_AUTH_PERMISSIONS_MAX_ENTRIES = 10000;
+
+    private static final String SHARED_MAP_NAME = "wiki.auth";
+    private static final String SHARED_PERMISSIONS_KEY = "permissions";
+    private static final String USER_AUTHORITIES_QUERY
+            = "select ur.role, rp.perm from user_roles ur left join roles_perms rp on ur.role = rp.role where ur.username = ?";
+
+    private final JDBCClient dbClient;
+    private final long ttl;
+    private final Map<String, Entry> entries;
+    // Counts the invalidations, a load that saw one happen keeps its authorities out of the cache
+    private long invalidations;
+
+    PermissionCache(JDBCClient dbClient, long ttl, int maxEntries) {
+        this.dbClient = dbClient;
+        this.ttl = ttl;
+        this.entries = new LinkedHashMap<String, Entry>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Get the cache shared by all verticles of this Vert.x instance, the first caller configures it.
+     */
+    public static PermissionCache shared(Vertx vertx, JDBCClient dbClient, JsonObject config) {
+        LocalMap<String, PermissionCache> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_PERMISSIONS_KEY, k -> new PermissionCache(dbClient,
+                config.getLong(CONFIG_AUTH_PERMISSIONS_TTL, DEFAULT_AUTH_PERMISSIONS_TTL),
+                config.getInteger(CONFIG_AUTH_PERMISSIONS_MAX_ENTRIES, DEFAULT_AUTH_PERMISSIONS_MAX_ENTRIES)));
+    }
+
+    /**
+     * Ask every node to drop the cached authorities of a user, or of all users when {@code username} is null.
+     */
+    public static void publishInvalidation(Vertx vertx, String username) {
+        vertx.eventBus().publish(INVALIDATION_ADDRESS, username);
+    }
+
+    /**
+     * Same contract as {@link User#isAuthorized(String, Handler)} for a JDBCAuth user.
+     */
+    public void isAuthorized(User user, String authority, Handler<AsyncResult<Boolean>> resultHandler) {
+        isAuthorized(user.principal().getString("username"), authority, resultHandler);
+    }
+
+    public void isAuthorized(String username, String authority, Handler<AsyncResult<Boolean>> resultHandler) {
+        authorities(username, ar -> {
+            if (ar.succeeded()) {
+                resultHandler.handle(Future.succeededFuture(ar.result().contains(authority)));
+            } else {
+                resultHandler.handle(Future.failedFuture(ar.cause()));
+            }
+        });
+    }
+
+    public void authorities(String username, Handler<AsyncResult<Set<String>>> resultHandler) {
+        if (username == null) {
+            resultHandler.handle(Future.succeededFuture(Collections.emptySet()));
+            return;
+        }
+        Entry entry;
+        long loadedAfter;
+        synchronized (this) {
+            entry = entries.get(username);
+            loadedAfter = invalidations;
+        }
+        if (entry != null && entry.expiresAt > System.currentTimeMillis()) {
+            resultHandler.handle(Future.succeededFuture(entry.authorities));
+            return;
+        }
+        dbClient.queryWithParams(USER_AUTHORITIES_QUERY, new JsonArray().add(username), query -> {
+            if (query.failed()) {
+                LOGGER.error("Could not load the permissions of " + username, query.cause());
+                resultHandler.handle(Future.failedFuture(query.cause()));
+                return;
+            }
+            Set<String> authorities = new HashSet<>();
+            for (JsonArray row : query.result().getResults()) {
+                authorities.add("role:" + row.getString(0));
+                if (row.getString(1) != null) {
+                    authorities.add(row.getString(1));
+                }
+            }
+            Set<String> loaded = Collections.unmodifiableSet(authorities);
+            synchronized (this) {
+                if (invalidations == loadedAfter) {
+                    entries.put(username, new Entry(loaded, System.currentTimeMillis() + ttl));
+                }
+            }
+            resultHandler.handle(Future.succeededFuture(loaded));
+        });
+    }
+
+    /**
+     * Drop the cached authorities of a user, or of all users when {@code username} is null or empty.
+     */
+    public synchronized void invalidate(String username) {
+        invalidations++;
+        if (username == null || username.isEmpty()) {
+            entries.clear();
+        } else {
+            entries.remove(username);
+        }
+    }
+
+    private static final class Entry {
+        private final Set<String> authorities;
+        private final long expiresAt;
+
+        Entry(Set<String> authorities, long expiresAt) {
+            this.authorities = authorities;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.file.FileSystem;
+import io.vertx.core.http.HttpServerResponse;
+import io.vertx.core.http.impl.MimeMapping;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import io.vertx.ext.web.RoutingContext;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * The single page app files, prepared once on startup.
+ *
+ * Every asset is copied under a name carrying a digest of its content, e.g. {@code wiki.<digest>.js},
+ * and the HTML pages are rewritten to reference these names. A fingerprinted name always has the
+ * same content, so it is cached by browsers for a year without revalidation; the HTML pages, whose
+ * names are bookmarked, are revalidated on every use instead. Each file gets a gzipped variant when
+ * that makes it noticeably smaller, and both are sent from disk with {@code sendFile}; the server
+ * must not compress them again, which is why it has no compression of its own over HTTP/2. Without an
+ * {@code http.assets.dir}, they are written to a temporary directory deleted once the last verticle
+ * using them stops.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+final class StaticAssets implements Shareable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(StaticAssets.class);
+
+    static final String CONFIG_HTTP_ASSETS_WEBROOT = "http.assets.webroot";
+    static final String CONFIG_HTTP_ASSETS_DIR = "http.assets.dir";
+
+    private static final String DEFAULT_WEBROOT = "webroot";
+    private static final String IMMUTABLE = "public, max-age=31536000, immutable";
+    private static final String REVALIDATED = "public, no-cache";
+    private static final int FINGERPRINT_LENGTH = 10;
+    // The gzipped variant is only kept when it saves at least a tenth of the size
+    private static final double GZIP_MAX_RATIO = 0.9;
+
+    private static final String SHARED_MAP_NAME = "wiki.http";
+    private static final String SHARED_ASSETS_KEY = "assets";
+    private static final String SHARED_LOCK = "wiki.http.assets";
+    private static final long SHARED_LOCK_TIMEOUT = 300000;
+
+    private final Map<String, Asset> assets;
+    private final Path tempDir;
+    // Verticles using the assets, only changed while holding the shared lock
+    private int users;
+
+    private StaticAssets(Map<String, Asset> assets, Path tempDir) {
+        this.assets = assets;
+        this.tempDir = tempDir;
+    }
+
+    /**
+     * Get the assets shared by all verticles of this Vert.x instance, the first caller prepares them
+     * on a worker thread. Each caller {@link #release releases} them when it stops.
+     *
+     * @param mountPath the path the assets are served under, e.g. {@code /app/}
+     */
+    static void shared(Vertx vertx, JsonObject config, String mountPath, Handler<AsyncResult<StaticAssets>> handler) {
+        vertx.sharedData().getLocalLockWithTimeout(SHARED_LOCK, SHARED_LOCK_TIMEOUT, lock -> {
+            if (lock.failed()) {
+                handler.handle(Future.failedFuture(lock.cause()));
+                return;
+            }
+            LocalMap<String, StaticAssets> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+            StaticAssets shared = map.get(SHARED_ASSETS_KEY);
+            if (shared != null) {
+                shared.users++;
+                lock.result().release();
+                handler.handle(Future.succeededFuture(shared));
+                return;
+            }
+            vertx.<StaticAssets>executeBlocking(promise -> promise.complete(prepare(vertx.fileSystem(), config, mountPath)), prepared -> {
+                if (prepared.succeeded()) {
+                    prepared.result().users++;
+                    map.put(SHARED_ASSETS_KEY, prepared.result());
+                }
+                lock.result().release();
+                handler.handle(prepared);
+            });
+        });
+    }
+
+    /**
+     * Stop using the assets, the last user deletes their temporary directory.
+     */
+    void release(Vertx vertx, Handler<AsyncResult<Void>> handler) {
+        vertx.sharedData().getLocalLockWithTimeout(SHARED_LOCK, SHARED_LOCK_TIMEOUT, lock -> {
+            if (lock.failed()) {
+                handler.handle(Future.failedFuture(lock.cause()));
+                return;
+            }
+            if (--users > 0) {
+                lock.result().release();
+                handler.handle(Future.succeededFuture());
+                return;
+            }
+            vertx.sharedData().<String, StaticAssets>getLocalMap(SHARED_MAP_NAME).remove(SHARED_ASSETS_KEY, this);
+            lock.result().release();
+            if (tempDir == null) {
+                handler.handle(Future.succeededFuture());
+            } else {
+                vertx.fileSystem().deleteRecursive(tempDir.toString(), true, handler);
+            }
+        });
+    }
+
+    /**
+     * Send an asset, gzipped to the clients accepting it, or pass on to the next handler when there
+     * is none with that name.
+     */
+    void serve(RoutingContext context, String name) {
+        Asset asset = assets.get(name);
+        if (asset == null) {
+            context.next();
+            return;
+        }
+        boolean gzip = asset.gzipped != null && CompressedPages.acceptsGzip(context.request());
+        HttpServerResponse response = context.response();
+        response.putHeader("Vary", "Accept-Encoding");
+        if (ConditionalGet.notModified(context, gzip ? asset.gzippedTag : asset.tag, 0, asset.cacheControl)) {
+            return;
+        }
+        response.putHeader("Content-Type", asset.contentType);
+        if (gzip) {
+            response.putHeader("Content-Encoding", "gzip");
+            response.sendFile(asset.gzipped);
+        } else {
+            response.sendFile(asset.file);
+        }
+    }
+
+    private static StaticAssets prepare(FileSystem fileSystem, JsonObject config, String mountPath) {
+        String webroot = config.getString(CONFIG_HTTP_ASSETS_WEBROOT, DEFAULT_WEBROOT);
+        try {
+            Path tempDir = config.containsKey(CONFIG_HTTP_ASSETS_DIR) ? null : Files.createTempDirectory("wiki-assets");
+            Path dir = tempDir != null ? tempDir : Files.createDirectories(Paths.get(config.getString(CONFIG_HTTP_ASSETS_DIR)));
+            Map<String, byte[]> sources = new TreeMap<>();
+            read(fileSystem, webroot, "", sources);
+
+            Map<String, Asset> assets = new HashMap<>();
+            Map<String, String> fingerprinted = new HashMap<>();
+            for (Map.Entry<String, byte[]> source : sources.entrySet()) {
+                String name = source.getKey();
+                if (isPage(name)) {
+                    continue;
+                }
+                String fingerprint = fingerprint(name, ConditionalGet.digest(source.getValue()).substring(0, FINGERPRINT_LENGTH));
+                Asset asset = write(dir, fingerprint, source.getValue(), IMMUTABLE);
+                fingerprinted.put(name, fingerprint);
+                assets.put(fingerprint, asset);
+                // Still served under its own name, for the pages loaded before a deployment
+                assets.put(name, asset.withCacheControl(REVALIDATED));
+            }
+            // The pages come last, they reference the fingerprinted names
+            for (Map.Entry<String, byte[]> source : sources.entrySet()) {
+                if (isPage(source.getKey())) {
+                    String page = new String(source.getValue(), StandardCharsets.UTF_8);
+                    for (Map.Entry<String, String> asset : fingerprinted.entrySet()) {
+                        page = page.replace(mountPath + asset.getKey(), mountPath + asset.getValue());
+                    }
+                    assets.put(source.getKey(), write(dir, source.getKey(), page.getBytes(StandardCharsets.UTF_8), REVALIDATED));
+                }
+            }
+            LOGGER.info("Prepared " + sources.size() + " static assets in " + dir);
+            return new StaticAssets(assets, tempDir);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void read(FileSystem fileSystem, String dir, String prefix, Map<String, byte[]> sources) {
+        for (String path : fileSystem.readDirBlocking(dir)) {
+            String name = prefix + Paths.get(path).getFileName();
+            if (fileSystem.propsBlocking(path).isDirectory()) {
+                read(fileSystem, path, name + "/", sources);
+            } else {
+                sources.put(name, fileSystem.readFileBlocking(path).getBytes());
+            }
+        }
+    }
+
+    private static boolean isPage(String name) {
+        return name.endsWith(".html");
+    }
+
+    /*
+     * wiki.js becomes wiki.<fingerprint>.js
+     */
+    private static String fingerprint(String name, String fingerprint) {
+        int dot = name.lastIndexOf('.');
+        if (dot <= name.lastIndexOf('/')) {
+            return name + "." + fingerprint;
+        }
+        return name.substring(0, dot) + "." + fingerprint + name.substring(dot);
+    }
+
+    private static Asset write(Path dir, String name, byte[] content, String cacheControl) throws IOException {
+        Path file = dir.resolve(name);
+        Files.createDirectories(file.getParent());
+        Files.write(file, content);
+        String gzipped = null;
+        byte[] gzip = CompressedPages.gzip(content);
+        if (gzip.length < content.length * GZIP_MAX_RATIO) {
+            Path gzipFile = dir.resolve(name + ".gz");
+            Files.write(gzipFile, gzip);
+            gzipped = gzipFile.toString();
+        }
+        String tag = ConditionalGet.digest(content);
+        return new Asset(file.toString(), gzipped, contentType(name), "\"" + tag + "\"", "\"" + tag + "-gzip\"", cacheControl);
+    }
+
+    private static String contentType(String name) {
+        String contentType = MimeMapping.getMimeTypeForFilename(name);
+        if (contentType == null) {
+            return "application/octet-stream";
+        }
+        if (contentType.startsWith("text/") || contentType.equals("application/javascript")) {
+            return contentType + ";charset=UTF-8";
+        }
+        return contentType;
+    }
+
+    private static final class Asset {
+        private final String file;
+        private final String gzipped;
+        private final String contentType;
+        private final String tag;
+        private final String gzippedTag;
+        private final String cacheControl;
+
+        Asset(String file, String gzipped, String contentType, String tag, String gzippedTag, String cacheControl) {
+            this.file = file;
+            this.gzipped = gzipped;
+            this.contentType = contentType;
+            this.tag = tag;
+            this.gzippedTag = gzippedTag;
+            this.cacheControl = cacheControl;
+        }
+
+        Asset withCacheControl(String cacheControl) {
+            return new Asset(file, gzipped, contentType, tag, gzippedTag, cacheControl);
+        }
+    }
+}
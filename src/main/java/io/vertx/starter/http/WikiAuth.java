@@ -0,0 +1,58 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+
+/**
+ * Authentication of the form login: the credentials are checked by the wrapped provider
+ * (JDBCAuth) and the session gets a {@link WikiUser}, whose permissions come from the
+ * {@link PermissionCache}.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class WikiAuth implements AuthProvider {
+    private final AuthProvider delegate;
+    private final PermissionCache permissionCache;
+
+    public WikiAuth(AuthProvider delegate, PermissionCache permissionCache) {
+        this.delegate = delegate;
+        this.permissionCache = permissionCache;
+    }
+
+    @Override
+    public void authenticate(JsonObject authInfo, Handler<AsyncResult<User>> resultHandler) {
+        delegate.authenticate(authInfo, ar -> {
+            if (ar.succeeded()) {
+                String username = ar.result().principal().getString("username");
+                resultHandler.handle(Future.succeededFuture(new WikiUser(username, this)));
+            } else {
+                resultHandler.handle(ar);
+            }
+        });
+    }
+
+    PermissionCache permissionCache() {
+        return permissionCache;
+    }
+}
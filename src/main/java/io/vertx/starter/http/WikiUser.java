@@ -0,0 +1,94 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.http;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.auth.AbstractUser;
+import io.vertx.ext.auth.AuthProvider;
+import io.vertx.ext.auth.User;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * User of a browser session.
+ *
+ * Only the username goes into the session, so a session replicated by the clustered store stays
+ * a few bytes long. Permissions are not cached on the user but asked to the
+ * {@link PermissionCache} of the node serving the request.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class WikiUser extends AbstractUser {
+    private String username;
+    private WikiAuth auth;
+
+    /**
+     * Used when a session is read back from the session store.
+     */
+    public WikiUser() {
+    }
+
+    public WikiUser(String username, WikiAuth auth) {
+        this.username = username;
+        this.auth = auth;
+    }
+
+    @Override
+    public JsonObject principal() {
+        return new JsonObject().put("username", username);
+    }
+
+    @Override
+    public void setAuthProvider(AuthProvider authProvider) {
+        if (authProvider instanceof WikiAuth) {
+            this.auth = (WikiAuth) authProvider;
+        }
+    }
+
+    @Override
+    public User isAuthorized(String authority, Handler<AsyncResult<Boolean>> resultHandler) {
+        doIsPermitted(authority, resultHandler);
+        return this;
+    }
+
+    @Override
+    protected void doIsPermitted(String permission, Handler<AsyncResult<Boolean>> resultHandler) {
+        if (auth == null) {
+            resultHandler.handle(Future.failedFuture(new IllegalStateException("No auth provider for " + username)));
+        } else {
+            auth.permissionCache().isAuthorized(username, permission, resultHandler);
+        }
+    }
+
+    @Override
+    public void writeToBuffer(Buffer buffer) {
+        byte[] bytes = username.getBytes(StandardCharsets.UTF_8);
+        buffer.appendInt(bytes.length).appendBytes(bytes);
+    }
+
+    @Override
+    public int readFromBuffer(int pos, Buffer buffer) {
+        int length = buffer.getInt(pos);
+        pos += 4;
+        username = new String(buffer.getBytes(pos, pos + length), StandardCharsets.UTF_8);
+        return pos + length;
+    }
+}
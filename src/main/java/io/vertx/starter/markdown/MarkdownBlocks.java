@@ -0,0 +1,90 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.markdown;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.regex.Pattern;
+
+/**
+ * Splits a Markdown document into top-level blocks that render independently.
+ *
+ * Blocks are separated by blank lines, fenced code, indented continuations and loose lists
+ * stay in one block. Documents using reference-style links are kept whole because a
+ * definition can be used by any block.
+ *
+ * @author nghiatc
+ * @since Oct 15, 2019
+ */
+public final class MarkdownBlocks {
+    private static final Pattern REFERENCE_DEFINITION = Pattern.compile("^ {0,3}\\[[^\\]]+\\]:\\s*\\S", Pattern.MULTILINE);
+    private static final Pattern LIST_ITEM = Pattern.compile("^\\s*([*+-]|\\d+\\.)\\s.*");
+
+    private MarkdownBlocks() {
+    }
+
+    public static List<String> split(String markdown) {
+        if (markdown == null || markdown.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (REFERENCE_DEFINITION.matcher(markdown).find()) {
+            return Collections.singletonList(markdown);
+        }
+        List<String> blocks = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean currentIsList = false;
+        String fence = null;
+        int blankLines = 0;
+        for (String line : markdown.split("\n", -1)) {
+            String trimmed = line.trim();
+            if (fence != null) {
+                current.append(line).append('\n');
+                if (trimmed.startsWith(fence)) {
+                    fence = null;
+                }
+                continue;
+            }
+            if (trimmed.isEmpty()) {
+                blankLines++;
+                continue;
+            }
+            boolean listItem = LIST_ITEM.matcher(line).matches();
+            boolean continuation = line.startsWith(" ") || line.startsWith("\t") || (currentIsList && listItem);
+            if (blankLines > 0 && current.length() > 0 && !continuation) {
+                blocks.add(current.toString());
+                current.setLength(0);
+            }
+            if (current.length() == 0) {
+                currentIsList = listItem;
+            } else {
+                for (int i = 0; i < blankLines; i++) {
+                    current.append('\n');
+                }
+            }
+            blankLines = 0;
+            current.append(line).append('\n');
+            if (trimmed.startsWith("```") || trimmed.startsWith("~~~")) {
+                fence = trimmed.substring(0, 3);
+            }
+        }
+        if (current.length() > 0) {
+            blocks.add(current.toString());
+        }
+        return blocks;
+    }
+}
@@ -0,0 +1,137 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.markdown;
+
+import com.github.rjeschke.txtmark.Processor;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Size-bounded LRU cache of rendered Markdown pages.
+ *
+ * One instance is shared by every verticle of a Vert.x instance through a local map,
+ * entries are keyed by page id and only served back while the Markdown is unchanged. An entry
+ * keeps both the Markdown and the HTML, both count against the size bound.
+ *
+ * @author nghiatc
+ * @since Oct 14, 2019
+ */
+public class MarkdownCache implements Shareable {
+    public static final String CONFIG_MARKDOWN_CACHE_MAX_ENTRIES = "markdown.cache.max_entries";
+    public static final String CONFIG_MARKDOWN_CACHE_MAX_CHARS = "markdown.cache.max_chars";
+
+    public static final int DEFAULT_MARKDOWN_CACHE_MAX_ENTRIES = 1000;
+    public static final long DEFAULT_MARKDOWN_CACHE_MAX_CHARS = 16L * 1024 * 1024;
+
+    private static final String SHARED_MAP_NAME = "wiki.markdown";
+    private static final String SHARED_CACHE_KEY = "cache";
+
+    private final int maxEntries;
+    private final long maxChars;
+    private final LinkedHashMap<Integer, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long chars;
+
+    MarkdownCache(int maxEntries, long maxChars) {
+        this.maxEntries = maxEntries;
+        this.maxChars = maxChars;
+    }
+
+    /**
+     * Get the cache shared by all verticles of this Vert.x instance, the first caller configures it.
+     */
+    public static MarkdownCache shared(Vertx vertx, JsonObject config) {
+        LocalMap<String, MarkdownCache> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_CACHE_KEY, k -> new MarkdownCache(
+                config.getInteger(CONFIG_MARKDOWN_CACHE_MAX_ENTRIES, DEFAULT_MARKDOWN_CACHE_MAX_ENTRIES),
+                config.getLong(CONFIG_MARKDOWN_CACHE_MAX_CHARS, DEFAULT_MARKDOWN_CACHE_MAX_CHARS)));
+    }
+
+    /**
+     * Render the Markdown of a page, reusing the cached HTML when the content did not change.
+     */
+    public String render(int id, String markdown) {
+        String html = get(id, markdown);
+        if (html == null) {
+            html = Processor.process(markdown);
+            put(id, markdown, html);
+        }
+        return html;
+    }
+
+    public synchronized String get(int id, String markdown) {
+        Entry entry = entries.get(id);
+        if (entry != null && entry.matches(markdown)) {
+            return entry.html;
+        }
+        return null;
+    }
+
+    public synchronized void put(int id, String markdown, String html) {
+        Entry entry = new Entry(markdown, html);
+        if (entry.chars() > maxChars) {
+            return;
+        }
+        Entry previous = entries.put(id, entry);
+        if (previous != null) {
+            chars -= previous.chars();
+        }
+        chars += entry.chars();
+        evict();
+    }
+
+    public synchronized void invalidate(int id) {
+        Entry previous = entries.remove(id);
+        if (previous != null) {
+            chars -= previous.chars();
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<Integer, Entry>> it = entries.entrySet().iterator();
+        while ((entries.size() > maxEntries || chars > maxChars) && it.hasNext()) {
+            chars -= it.next().getValue().chars();
+            it.remove();
+        }
+    }
+
+    private static final class Entry {
+        private final String markdown;
+        private final String html;
+
+        Entry(String markdown, String html) {
+            this.markdown = markdown;
+            this.html = html;
+        }
+
+        boolean matches(String markdown) {
+            return this.markdown.equals(markdown);
+        }
+
+        long chars() {
+            return markdown.length() + html.length();
+        }
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.markdown;
+
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Incremental live preview: keeps the last block list of every editing client and only
+ * re-renders the blocks that changed.
+ *
+ * A reply is either a full rendering or a patch that applies to the {@code base} revision
+ * known by the client:
+ * <pre>
+ * { "revision": 7, "base": 6, "full": false, "start": 2, "deleteCount": 1, "blocks": ["&lt;p&gt;...&lt;/p&gt;"] }
+ * </pre>
+ * The client replaces {@code deleteCount} blocks at {@code start} with {@code blocks}.
+ *
+ * @author nghiatc
+ * @since Oct 15, 2019
+ */
+public class MarkdownPreview implements Shareable {
+    public static final String CONFIG_MARKDOWN_PREVIEW_MAX_SESSIONS = "markdown.preview.max_sessions";
+    public static final int DEFAULT_MARKDOWN_PREVIEW_MAX_SESSIONS = 1024;
+
+    private static final String SHARED_MAP_NAME = "wiki.markdown";
+    private static final String SHARED_PREVIEW_KEY = "preview";
+
+    private final MarkdownRenderer renderer;
+    private final Map<String, Session> sessions;
+
+    MarkdownPreview(MarkdownRenderer renderer, int maxSessions) {
+        this.renderer = renderer;
+        this.sessions = new LinkedHashMap<String, Session>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Session> eldest) {
+                return size() > maxSessions;
+            }
+        };
+    }
+
+    /**
+     * Get the preview sessions shared by all verticles of this Vert.x instance.
+     */
+    public static MarkdownPreview shared(Vertx vertx, JsonObject config) {
+        MarkdownRenderer renderer = MarkdownRenderer.shared(vertx, config);
+        LocalMap<String, MarkdownPreview> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_PREVIEW_KEY, k -> new MarkdownPreview(renderer,
+                config.getInteger(CONFIG_MARKDOWN_PREVIEW_MAX_SESSIONS, DEFAULT_MARKDOWN_PREVIEW_MAX_SESSIONS)));
+    }
+
+    /**
+     * Latest-wins entry point used by the event bus bridge.
+     *
+     * A client has at most one render in flight and one waiting, a newer request replaces the
+     * waiting one which is answered with {@code { "superseded": true }} without being rendered.
+     */
+    public void submit(String client, long base, String markdown, Handler<AsyncResult<JsonObject>> resultHandler) {
+        Session session = session(client);
+        Request request = new Request(base, markdown, resultHandler);
+        Request superseded = null;
+        boolean idle;
+        synchronized (session) {
+            idle = !session.busy;
+            if (idle) {
+                session.busy = true;
+            } else {
+                superseded = session.waiting;
+                session.waiting = request;
+            }
+        }
+        if (idle) {
+            run(client, session, request);
+        } else if (superseded != null) {
+            superseded.resultHandler.handle(Future.succeededFuture(new JsonObject().put("superseded", true)));
+        }
+    }
+
+    private void run(String client, Session session, Request request) {
+        preview(client, request.base, request.markdown, ar -> {
+            request.resultHandler.handle(ar);
+            Request next;
+            synchronized (session) {
+                next = session.waiting;
+                session.waiting = null;
+                session.busy = next != null;
+                // The waiting request was sent before the client received this reply, which it applies first
+                if (next != null && ar.succeeded() && next.base == request.base) {
+                    next.base = ar.result().getLong("revision");
+                }
+            }
+            if (next != null) {
+                run(client, session, next);
+            }
+        });
+    }
+
+    /**
+     * Render the text typed by a client against the revision it currently displays, a base of 0 asks for a full rendering.
+     */
+    public void preview(String client, long base, String markdown, Handler<AsyncResult<JsonObject>> resultHandler) {
+        List<String> blocks = MarkdownBlocks.split(markdown);
+        Session session = session(client);
+        State known;
+        long revision;
+        synchronized (session) {
+            known = session.state;
+            revision = ++session.lastRevision;
+        }
+
+        boolean full = base == 0 || base != known.revision;
+        List<String> oldBlocks = full ? Collections.emptyList() : known.blocks;
+        int start = 0;
+        int max = Math.min(oldBlocks.size(), blocks.size());
+        while (start < max && oldBlocks.get(start).equals(blocks.get(start))) {
+            start++;
+        }
+        int end = 0;
+        while (end < max - start
+                && oldBlocks.get(oldBlocks.size() - 1 - end).equals(blocks.get(blocks.size() - 1 - end))) {
+            end++;
+        }
+        int prefix = start;
+        int suffix = end;
+        renderer.render(blocks.subList(prefix, blocks.size() - suffix), ar -> {
+            if (ar.failed()) {
+                resultHandler.handle(Future.failedFuture(ar.cause()));
+                return;
+            }
+            List<String> html = new ArrayList<>(known.html.subList(0, prefix));
+            html.addAll(ar.result());
+            html.addAll(known.html.subList(known.html.size() - suffix, known.html.size()));
+            State next = new State(revision, blocks, html);
+
+            boolean patch;
+            synchronized (session) {
+                patch = !full && session.state == known;
+                if (revision > session.state.revision) {
+                    session.state = next;
+                }
+            }
+            JsonObject reply = new JsonObject()
+                    .put("revision", revision)
+                    .put("base", base)
+                    .put("full", !patch);
+            if (patch) {
+                reply.put("start", prefix)
+                        .put("deleteCount", oldBlocks.size() - prefix - suffix)
+                        .put("blocks", new JsonArray(ar.result()));
+            } else {
+                reply.put("start", 0)
+                        .put("deleteCount", 0)
+                        .put("blocks", new JsonArray(html));
+            }
+            resultHandler.handle(Future.succeededFuture(reply));
+        });
+    }
+
+    /**
+     * Drop the session of a client, once the socket it previewed through is closed.
+     */
+    public synchronized void forget(String client) {
+        sessions.remove(client);
+    }
+
+    private synchronized Session session(String client) {
+        return sessions.computeIfAbsent(client, k -> new Session());
+    }
+
+    private static final class Session {
+        private State state = new State(0, Collections.emptyList(), Collections.emptyList());
+        private long lastRevision;
+        private boolean busy;
+        private Request waiting;
+    }
+
+    private static final class Request {
+        private long base;
+        private final String markdown;
+        private final Handler<AsyncResult<JsonObject>> resultHandler;
+
+        Request(long base, String markdown, Handler<AsyncResult<JsonObject>> resultHandler) {
+            this.base = base;
+            this.markdown = markdown;
+            this.resultHandler = resultHandler;
+        }
+    }
+
+    private static final class State {
+        private final long revision;
+        private final List<String> blocks;
+        private final List<String> html;
+
+        State(long revision, List<String> blocks, List<String> html) {
+            this.revision = revision;
+            this.blocks = blocks;
+            this.html = html;
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.markdown;
+
+/**
+ * A render request that was refused or abandoned, with the HTTP status to answer.
+ *
+ * @author nghiatc
+ * @since Oct 14, 2019
+ */
+public class MarkdownRenderException extends RuntimeException {
+    private final int statusCode;
+
+    public MarkdownRenderException(int statusCode, String message) {
+        super(message, null, false, false);
+        this.statusCode = statusCode;
+    }
+
+    public int statusCode() {
+        return statusCode;
+    }
+}
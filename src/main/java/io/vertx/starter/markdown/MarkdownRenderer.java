@@ -0,0 +1,167 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.markdown;
+
+import com.github.rjeschke.txtmark.Processor;
+import io.vertx.core.AsyncResult;
+import io.vertx.core.Future;
+import io.vertx.core.Handler;
+import io.vertx.core.Vertx;
+import io.vertx.core.WorkerExecutor;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Renders Markdown on a dedicated worker pool so that large pages never block an event loop.
+ *
+ * Requests are admitted while fewer than {@code queue_size} renders are queued or running,
+ * bigger documents than {@code max_chars} are refused (413), a full queue fails fast (503)
+ * and a render slower than {@code timeout} is answered with a 503 while it finishes in the background.
+ *
+ * @author nghiatc
+ * @since Oct 14, 2019
+ */
+public class MarkdownRenderer implements Shareable {
+    public static final String CONFIG_MARKDOWN_RENDERER_POOL_SIZE = "markdown.renderer.pool_size";
+    public static final String CONFIG_MARKDOWN_RENDERER_QUEUE_SIZE = "markdown.renderer.queue_size";
+    public static final String CONFIG_MARKDOWN_RENDERER_MAX_CHARS = "markdown.renderer.max_chars";
+    public static final String CONFIG_MARKDOWN_RENDERER_TIMEOUT = "markdown.renderer.timeout";
+
+    public static final int DEFAULT_MARKDOWN_RENDERER_POOL_SIZE = Runtime.getRuntime().availableProcessors();
+    public static final int DEFAULT_MARKDOWN_RENDERER_QUEUE_SIZE = 64;
+    public static final int DEFAULT_MARKDOWN_RENDERER_MAX_CHARS = 4 * 1024 * 1024;
+    public static final long DEFAULT_MARKDOWN_RENDERER_TIMEOUT = 5000;
+
+    private static final String SHARED_MAP_NAME = "wiki.markdown";
+    private static final String SHARED_RENDERER_KEY = "renderer";
+
+    private final Vertx vertx;
+    private final MarkdownCache cache;
+    private final WorkerExecutor executor;
+    private final int queueSize;
+    private final int maxChars;
+    private final long timeout;
+    private final AtomicInteger pending = new AtomicInteger();
+
+    MarkdownRenderer(Vertx vertx, MarkdownCache cache, int poolSize, int queueSize, int maxChars, long timeout) {
+        this.vertx = vertx;
+        this.cache = cache;
+        this.executor = vertx.createSharedWorkerExecutor("markdown-renderer", poolSize, timeout, TimeUnit.MILLISECONDS);
+        this.queueSize = queueSize;
+        this.maxChars = maxChars;
+        this.timeout = timeout;
+    }
+
+    /**
+     * Get the renderer shared by all verticles of this Vert.x instance, the first caller configures it.
+     */
+    public static MarkdownRenderer shared(Vertx vertx, JsonObject config) {
+        MarkdownCache cache = MarkdownCache.shared(vertx, config);
+        LocalMap<String, MarkdownRenderer> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_RENDERER_KEY, k -> new MarkdownRenderer(vertx, cache,
+                config.getInteger(CONFIG_MARKDOWN_RENDERER_POOL_SIZE, DEFAULT_MARKDOWN_RENDERER_POOL_SIZE),
+                config.getInteger(CONFIG_MARKDOWN_RENDERER_QUEUE_SIZE, DEFAULT_MARKDOWN_RENDERER_QUEUE_SIZE),
+                config.getInteger(CONFIG_MARKDOWN_RENDERER_MAX_CHARS, DEFAULT_MARKDOWN_RENDERER_MAX_CHARS),
+                config.getLong(CONFIG_MARKDOWN_RENDERER_TIMEOUT, DEFAULT_MARKDOWN_RENDERER_TIMEOUT)));
+    }
+
+    public MarkdownCache cache() {
+        return cache;
+    }
+
+    /**
+     * Render a document that is not a stored page, e.g. the live preview.
+     */
+    public void render(String markdown, Handler<AsyncResult<String>> resultHandler) {
+        String text = markdown == null ? "" : markdown;
+        submit(text.length(), () -> Processor.process(text), resultHandler);
+    }
+
+    /**
+     * Render several independent blocks of a document as one admitted task.
+     */
+    public void render(List<String> blocks, Handler<AsyncResult<List<String>>> resultHandler) {
+        if (blocks.isEmpty()) {
+            resultHandler.handle(Future.succeededFuture(Collections.emptyList()));
+            return;
+        }
+        int chars = blocks.stream().mapToInt(String::length).sum();
+        submit(chars, () -> blocks.stream().map(Processor::process).collect(Collectors.toList()), resultHandler);
+    }
+
+    /**
+     * Render a stored page, the shared cache answers directly when the content did not change.
+     */
+    public void render(int id, String markdown, Handler<AsyncResult<String>> resultHandler) {
+        String html = cache.get(id, markdown);
+        if (html != null) {
+            resultHandler.handle(Future.succeededFuture(html));
+            return;
+        }
+        String text = markdown == null ? "" : markdown;
+        submit(text.length(), () -> {
+            String rendered = Processor.process(text);
+            cache.put(id, text, rendered);
+            return rendered;
+        }, resultHandler);
+    }
+
+    /**
+     * Render documents that are being written to the database.
+     *
+     * Writes are rare and must not be refused, so they bypass the admission and size limits
+     * but still run on the rendering pool.
+     */
+    public void renderAll(List<String> documents, Handler<AsyncResult<List<String>>> resultHandler) {
+        executor.<List<String>>executeBlocking(promise -> promise.complete(documents.stream()
+                .map(markdown -> Processor.process(markdown == null ? "" : markdown))
+                .collect(Collectors.toList())), false, resultHandler);
+    }
+
+    private <T> void submit(int chars, Supplier<T> task, Handler<AsyncResult<T>> resultHandler) {
+        if (chars > maxChars) {
+            resultHandler.handle(Future.failedFuture(new MarkdownRenderException(413, "Markdown content too large")));
+            return;
+        }
+        if (pending.incrementAndGet() > queueSize) {
+            pending.decrementAndGet();
+            resultHandler.handle(Future.failedFuture(new MarkdownRenderException(503, "Markdown renderer is saturated")));
+            return;
+        }
+        AtomicBoolean done = new AtomicBoolean();
+        long timerId = vertx.setTimer(timeout, tid -> {
+            if (done.compareAndSet(false, true)) {
+                resultHandler.handle(Future.failedFuture(new MarkdownRenderException(503, "Markdown rendering timed out")));
+            }
+        });
+        executor.<T>executeBlocking(promise -> promise.complete(task.get()), false, ar -> {
+            pending.decrementAndGet();
+            vertx.cancelTimer(timerId);
+            if (done.compareAndSet(false, true)) {
+                resultHandler.handle(ar);
+            }
+        });
+    }
+}
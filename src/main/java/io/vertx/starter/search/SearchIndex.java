@@ -0,0 +1,369 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter.search;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import io.vertx.core.shareddata.LocalMap;
+import io.vertx.core.shareddata.Shareable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Inverted index of the page names and contents, ranked with BM25.
+ *
+ * The index is kept up to date by the database service as pages are written, and saved to a
+ * gzip file with one JSON page per line a few seconds after the last change. On startup the
+ * saved index is loaded and only the pages whose {@code modified} time differs from the
+ * database are indexed again.
+ *
+ * Searches hold a read lock, updates a write lock: one index is shared by all the verticles of
+ * this Vert.x instance and it is used from worker threads.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+public class SearchIndex implements Shareable {
+    private static final Logger LOGGER = LoggerFactory.getLogger(SearchIndex.class);
+
+    public static final String CONFIG_SEARCH_INDEX_FILE = "search.index.file";
+    public static final String CONFIG_SEARCH_INDEX_FLUSH_DELAY = "search.index.flush_delay";
+
+    public static final String DEFAULT_SEARCH_INDEX_FILE = "db/search-index.ndjson.gz";
+    public static final long DEFAULT_SEARCH_INDEX_FLUSH_DELAY = 5000;
+
+    private static final String SHARED_MAP_NAME = "wiki.search";
+    private static final String SHARED_INDEX_KEY = "index";
+    private static final int FORMAT_VERSION = 1;
+    // Name terms weigh as much as this many occurrences in the content
+    private static final int NAME_WEIGHT = 3;
+    private static final double K1 = 1.2;
+    private static final double B = 0.75;
+
+    private final Vertx vertx;
+    private final Path file;
+    private final long flushDelay;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<String, Map<Integer, Integer>> postings = new HashMap<>();
+    private final Map<Integer, Doc> docs = new HashMap<>();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final AtomicBoolean opened = new AtomicBoolean();
+    private long totalLength;
+
+    SearchIndex(Vertx vertx, String file, long flushDelay) {
+        this.vertx = vertx;
+        this.file = file.isEmpty() ? null : Paths.get(file);
+        this.flushDelay = flushDelay;
+    }
+
+    /**
+     * Get the index shared by all verticles of this Vert.x instance, the first caller configures it.
+     * An empty {@code search.index.file} keeps the index in memory only.
+     */
+    public static SearchIndex shared(Vertx vertx, JsonObject config) {
+        LocalMap<String, SearchIndex> map = vertx.sharedData().getLocalMap(SHARED_MAP_NAME);
+        return map.computeIfAbsent(SHARED_INDEX_KEY, k -> new SearchIndex(vertx,
+                config.getString(CONFIG_SEARCH_INDEX_FILE, DEFAULT_SEARCH_INDEX_FILE),
+                config.getLong(CONFIG_SEARCH_INDEX_FLUSH_DELAY, DEFAULT_SEARCH_INDEX_FLUSH_DELAY)));
+    }
+
+    /**
+     * True for the first caller only, who has to load the index and bring it up to date.
+     */
+    public boolean markOpened() {
+        return opened.compareAndSet(false, true);
+    }
+
+    /**
+     * Index a page, replacing its previous version.
+     */
+    public void put(int id, String name, String content, long modified) {
+        Map<String, Integer> terms = new HashMap<>();
+        for (String term : tokenize(name)) {
+            terms.merge(term, NAME_WEIGHT, Integer::sum);
+        }
+        for (String term : tokenize(content)) {
+            terms.merge(term, 1, Integer::sum);
+        }
+        lock.writeLock().lock();
+        try {
+            Doc indexed = docs.get(id);
+            if (indexed != null && indexed.modified > modified) {
+                // A later version of the page was indexed first
+                return;
+            }
+            removeDoc(id);
+            addDoc(id, new Doc(name, modified, terms));
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleFlush();
+    }
+
+    public void remove(int id) {
+        lock.writeLock().lock();
+        try {
+            removeDoc(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+        scheduleFlush();
+    }
+
+    /**
+     * The {@code modified} time of every indexed page by id.
+     */
+    public Map<Integer, Long> versions() {
+        lock.readLock().lock();
+        try {
+            Map<Integer, Long> versions = new HashMap<>();
+            docs.forEach((id, doc) -> versions.put(id, doc.modified));
+            return versions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Search pages matching any of the query terms, best first.
+     *
+     * @return {@code {total, results: [{id, name, score}]}} with at most {@code limit} results after the {@code offset} first ones
+     */
+    public JsonObject search(String query, int offset, int limit) {
+        List<String> terms = tokenize(query);
+        List<Hit> hits = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            if (!docs.isEmpty()) {
+                double averageLength = (double) totalLength / docs.size();
+                Map<Integer, Double> scores = new HashMap<>();
+                for (String term : new LinkedHashSet<>(terms)) {
+                    Map<Integer, Integer> posting = postings.get(term);
+                    if (posting == null) {
+                        continue;
+                    }
+                    double idf = Math.log(1 + (docs.size() - posting.size() + 0.5) / (posting.size() + 0.5));
+                    posting.forEach((id, tf) -> {
+                        double norm = K1 * (1 - B + B * docs.get(id).length / averageLength);
+                        scores.merge(id, idf * tf * (K1 + 1) / (tf + norm), Double::sum);
+                    });
+                }
+                scores.forEach((id, score) -> hits.add(new Hit(id, docs.get(id).name, score)));
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        hits.sort((a, b) -> a.score != b.score ? Double.compare(b.score, a.score) : a.name.compareTo(b.name));
+        JsonArray results = new JsonArray();
+        for (Hit hit : hits.subList(Math.min(offset, hits.size()), (int) Math.min((long) offset + limit, hits.size()))) {
+            results.add(new JsonObject()
+                    .put("id", hit.id)
+                    .put("name", hit.name)
+                    .put("score", hit.score));
+        }
+        return new JsonObject()
+                .put("total", hits.size())
+                .put("results", results);
+    }
+
+    /**
+     * Read the saved index, if any. Blocking.
+     */
+    public void load() {
+        if (file == null || !Files.exists(file)) {
+            return;
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file)), StandardCharsets.UTF_8))) {
+            JsonObject header = new JsonObject(reader.readLine());
+            if (header.getInteger("version", 0) != FORMAT_VERSION) {
+                LOGGER.info("Ignoring the search index " + file + " saved in an older format");
+                return;
+            }
+            lock.writeLock().lock();
+            try {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    JsonObject page = new JsonObject(line);
+                    Map<String, Integer> terms = new HashMap<>();
+                    page.getJsonObject("terms").forEach(term -> terms.put(term.getKey(), ((Number) term.getValue()).intValue()));
+                    removeDoc(page.getInteger("id"));
+                    addDoc(page.getInteger("id"), new Doc(page.getString("name"), page.getLong("modified"), terms));
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+            LOGGER.info("Loaded the search index of " + docs.size() + " pages from " + file);
+        } catch (IOException | RuntimeException e) {
+            // The index can always be rebuilt from the database
+            LOGGER.error("Could not load the search index " + file, e);
+            clear();
+        }
+    }
+
+    /**
+     * Write the index to a temporary file and move it over the saved one. Blocking.
+     */
+    public void save() {
+        if (file == null) {
+            return;
+        }
+        List<String> lines = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            docs.forEach((id, doc) -> lines.add(new JsonObject()
+                    .put("id", id)
+                    .put("name", doc.name)
+                    .put("modified", doc.modified)
+                    .put("terms", new JsonObject(new HashMap<>(doc.terms)))
+                    .encode()));
+        } finally {
+            lock.readLock().unlock();
+        }
+        Path part = file.resolveSibling(file.getFileName() + ".part");
+        try {
+            if (file.getParent() != null) {
+                Files.createDirectories(file.getParent());
+            }
+            try (BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(part)), StandardCharsets.UTF_8))) {
+                writer.write(new JsonObject().put("version", FORMAT_VERSION).encode());
+                writer.newLine();
+                for (String line : lines) {
+                    writer.write(line);
+                    writer.newLine();
+                }
+            }
+            Files.move(part, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /*
+     * Changes come in bursts, e.g. an import, the index is only saved once they stop for a while.
+     */
+    private void scheduleFlush() {
+        if (file == null || !flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        vertx.setTimer(flushDelay, tid -> {
+            flushScheduled.set(false);
+            vertx.<Void>executeBlocking(promise -> {
+                save();
+                promise.complete();
+            }, false, ar -> {
+                if (ar.failed()) {
+                    LOGGER.error("Could not save the search index " + file, ar.cause());
+                }
+            });
+        });
+    }
+
+    private void clear() {
+        lock.writeLock().lock();
+        try {
+            postings.clear();
+            docs.clear();
+            totalLength = 0;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void addDoc(int id, Doc doc) {
+        docs.put(id, doc);
+        totalLength += doc.length;
+        doc.terms.forEach((term, tf) -> postings.computeIfAbsent(term, k -> new HashMap<>()).put(id, tf));
+    }
+
+    private void removeDoc(int id) {
+        Doc doc = docs.remove(id);
+        if (doc == null) {
+            return;
+        }
+        totalLength -= doc.length;
+        for (String term : doc.terms.keySet()) {
+            Map<Integer, Integer> posting = postings.get(term);
+            posting.remove(id);
+            if (posting.isEmpty()) {
+                postings.remove(term);
+            }
+        }
+    }
+
+    static List<String> tokenize(String text) {
+        if (text == null || text.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<String> terms = new ArrayList<>();
+        for (String token : text.toLowerCase(Locale.ROOT).split("[^\\p{L}\\p{Nd}]+")) {
+            if (token.length() >= 2 && token.length() <= 64) {
+                terms.add(token);
+            }
+        }
+        return terms;
+    }
+
+    private static final class Doc {
+        private final String name;
+        private final long modified;
+        private final Map<String, Integer> terms;
+        private final int length;
+
+        Doc(String name, long modified, Map<String, Integer> terms) {
+            this.name = name;
+            this.modified = modified;
+            this.terms = terms;
+            this.length = terms.values().stream().mapToInt(Integer::intValue).sum();
+        }
+    }
+
+    private static final class Hit {
+        private final int id;
+        private final String name;
+        private final double score;
+
+        Hit(int id, String name, double score) {
+            this.id = id;
+            this.name = name;
+            this.score = score;
+        }
+    }
+}
@@ -27,19 +27,27 @@
         <li><a href="/wiki/${page}">${page}</a></li>
       </#items>
     </ul>
+    <#if nextPage?has_content>
+      <p><a class="btn btn-outline-secondary btn-sm" href="/index?after=${nextPage?url}" role="button">Next pages</a></p>
+    </#if>
   <#else>
     <p>The wiki is currently empty!</p>
   </#list>
 
   <#if canCreatePage>
-    <#if backup_gist_url?has_content>
+    <#if backup_location?has_content>
       <div class="alert alert-success" role="alert">
         Successfully created a backup:
-        <a href="${backup_gist_url}" class="alert-link">${backup_gist_url}</a>
+        <#if backup_location?starts_with("http")>
+          <a href="${backup_location}" class="alert-link">${backup_location}</a>
+        <#else>
+          <code>${backup_location}</code>
+        </#if>
       </div>
     <#else>
       <p>
         <a class="btn btn-outline-secondary btn-sm" href="/action/backup" role="button" aria-pressed="true">Backup</a>
+        <a class="btn btn-outline-secondary btn-sm" href="/action/backup?incremental=true" role="button" aria-pressed="true">Incremental backup</a>
       </p>
     </#if>
   </#if>
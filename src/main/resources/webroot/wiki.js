@@ -29,10 +29,18 @@ angular.module("wikiApp", [])
                 $scope.pageMarkdown = DEFAULT_MARKDOWN;
                 $scope.client = clientUuid;
             };
+            var PAGES_PAGE_SIZE = 100;
             $scope.reload = function () {
                 $scope.pageModified = false;
-                $http.get("/api/pages").then(function (response) {
+                $http.get("/api/pages", {params: {limit: PAGES_PAGE_SIZE}}).then(function (response) {
                     $scope.pages = response.data.pages;
+                    $scope.nextPages = response.data.next;
+                });
+            };
+            $scope.loadMorePages = function () {
+                $http.get("/api/pages", {params: {after: $scope.nextPages, limit: PAGES_PAGE_SIZE}}).then(function (response) {
+                    $scope.pages = $scope.pages.concat(response.data.pages);
+                    $scope.nextPages = response.data.next;
                 });
             };
             $scope.pageExists = function () {
@@ -57,9 +65,32 @@ angular.module("wikiApp", [])
                     $scope.pageModified = false;
                 });
             };
+            var previewRevision = 0;
             $scope.updateRendering = function (html) {
+                previewRevision = 0;
                 document.getElementById("rendering").innerHTML = html;
             };
+            $scope.applyPreview = function (patch) {
+                var rendering = document.getElementById("rendering");
+                if (patch.full) {
+                    if (patch.revision <= previewRevision) {
+                        return;
+                    }
+                    rendering.innerHTML = "";
+                } else if (patch.base !== previewRevision) {
+                    return;
+                }
+                var anchor = rendering.children[patch.start + patch.deleteCount] || null;
+                for (var i = 0; i < patch.deleteCount; i++) {
+                    rendering.removeChild(rendering.children[patch.start]);
+                }
+                patch.blocks.forEach(function (html) {
+                    var block = document.createElement("div");
+                    block.innerHTML = html;
+                    rendering.insertBefore(block, anchor);
+                });
+                previewRevision = patch.revision;
+            };
             $scope.save = function () {
                 var payload;
                 if ($scope.pageId === undefined) {
@@ -133,12 +164,20 @@ angular.module("wikiApp", [])
 //                    $http.post("/app/markdown", text).then(function (response) {
 //                        $scope.updateRendering(response.data);
 //                    });
-                    // Case2: WebSocket
-                    eb.send("app.markdown", text, function (err, reply) {
+                    // Case2: WebSocket, only the changed blocks come back
+                    var request = {
+                        "client": clientUuid,
+                        "base": previewRevision,
+                        "text": text
+                    };
+                    eb.send("app.markdown.preview", request, function (err, reply) {
                         if (err === null) {
-                            $scope.$apply(function () {
-                                $scope.updateRendering(reply.body);
-                            });
+                            // superseded: a newer text was sent before this one got rendered
+                            if (!reply.body.superseded) {
+                                $scope.$apply(function () {
+                                    $scope.applyPreview(reply.body);
+                                });
+                            }
                         } else {
                             console.warn("Error rendering Markdown content: " + JSON.stringify(err));
                         }
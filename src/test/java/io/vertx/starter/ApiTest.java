@@ -20,9 +20,13 @@ import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Future;
 import io.vertx.core.Promise;
 import io.vertx.core.Vertx;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.http.HttpClient;
+import io.vertx.core.http.HttpVersion;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 import io.vertx.core.net.JksOptions;
+import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
@@ -33,6 +37,19 @@ import io.vertx.ext.web.codec.BodyCodec;
 import io.vertx.starter.database.WikiDatabaseVerticle;
 import io.vertx.starter.http.AuthInitializerVerticle;
 import io.vertx.starter.http.HttpServerVerticle;
+import io.vertx.starter.http.PermissionCache;
+import io.vertx.starter.markdown.MarkdownPreview;
+import io.vertx.starter.search.SearchIndex;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -51,14 +68,18 @@ public class ApiTest {
     private Vertx vertx;
     private WebClient webClient;
     private String jwtTokenHeaderValue;
+    private String jdbcUrl;
 
     @Before
     public void prepare(TestContext context) {
         vertx = Vertx.vertx();
+        // A database of its own for each test, whatever the previous ones left in theirs
+        jdbcUrl = "jdbc:hsqldb:mem:apitest-" + UUID.randomUUID() + ";shutdown=true";
 
         JsonObject dbConf = new JsonObject()
-                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL, "jdbc:hsqldb:mem:testdb;shutdown=true")
-                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4);
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL, jdbcUrl)
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4)
+                .put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, "");
 
         vertx.deployVerticle(new AuthInitializerVerticle(),
                 new DeploymentOptions().setConfig(dbConf), context.asyncAssertSuccess());
@@ -83,6 +104,404 @@ public class ApiTest {
         vertx.close(context.asyncAssertSuccess());
     }
     
+    @Test
+    public void permissions_are_cached(TestContext context) {
+        Async async = context.async();
+        JDBCClient dbClient = JDBCClient.createShared(vertx, new JsonObject()
+                .put("url", jdbcUrl)
+                .put("driver_class", "org.hsqldb.jdbcDriver"));
+        PermissionCache cache = PermissionCache.shared(vertx, dbClient, new JsonObject());
+        cache.authorities("bar", context.asyncAssertSuccess(granted -> {
+            context.assertTrue(granted.contains("update"));
+            context.assertTrue(granted.contains("role:writer"));
+            context.assertFalse(granted.contains("create"));
+            dbClient.update("delete from user_roles where username = 'bar'", context.asyncAssertSuccess(deleted -> {
+                cache.isAuthorized("bar", "update", context.asyncAssertSuccess(cached -> {
+                    context.assertTrue(cached);
+                    PermissionCache.publishInvalidation(vertx, "bar");
+                    vertx.setTimer(100, tid -> cache.isAuthorized("bar", "update", context.asyncAssertSuccess(reloaded -> {
+                        context.assertFalse(reloaded);
+                        async.complete();
+                    })));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void tls_server_negotiates_http2(TestContext context) {
+        Async async = context.async();
+        WebClient tlsClient = deployHttp2Server(context);
+        tlsClient.get("/app/index.html").send(context.asyncAssertSuccess(resp -> {
+            context.assertEquals(200, resp.statusCode());
+            context.assertEquals(HttpVersion.HTTP_2, resp.version());
+            tlsClient.close();
+            async.complete();
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void pages_are_gzipped_once_over_http2(TestContext context) {
+        Async async = context.async();
+        WebClient tlsClient = deployHttp2Server(context);
+        webClient.get("/api/token")
+                .putHeader("login", "foo")
+                .putHeader("password", "bar")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    String markdown = String.join("\n", Collections.nCopies(200, "A line of a large and repetitive wiki page"));
+                    webClient.post("/api/pages")
+                            .putHeader("Authorization", authorization)
+                            .sendJsonObject(new JsonObject().put("name", "Large").put("markdown", markdown), context.asyncAssertSuccess(created -> {
+                                webClient.get("/api/pages")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .send(context.asyncAssertSuccess(list -> {
+                                            String path = "/api/pages/" + list.body().getJsonArray("pages").getJsonObject(0).getInteger("id");
+                                            webClient.get(path).putHeader("Authorization", authorization).send(context.asyncAssertSuccess(plain -> {
+                                                // The first request renders and caches the gzip, the second one is served from the cache
+                                                tlsClient.get(path)
+                                                        .putHeader("Authorization", authorization)
+                                                        .putHeader("Accept-Encoding", "gzip")
+                                                        .send(context.asyncAssertSuccess(rendered -> {
+                                                            context.assertEquals(HttpVersion.HTTP_2, rendered.version());
+                                                            context.assertEquals("gzip", rendered.getHeader("Content-Encoding"));
+                                                            context.assertEquals(plain.bodyAsString(), gunzip(rendered.body()));
+                                                            tlsClient.get(path)
+                                                                    .putHeader("Authorization", authorization)
+                                                                    .putHeader("Accept-Encoding", "gzip")
+                                                                    .send(context.asyncAssertSuccess(cached -> {
+                                                                        context.assertEquals(plain.bodyAsString(), gunzip(cached.body()));
+                                                                        tlsClient.close();
+                                                                        async.complete();
+                                                                    }));
+                                                        }));
+                                            }));
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void static_assets_are_fingerprinted(TestContext context) {
+        Async async = context.async();
+        webClient.get("/app/index.html").as(BodyCodec.string()).send(context.asyncAssertSuccess(index -> {
+            context.assertEquals(200, index.statusCode());
+            context.assertEquals("public, no-cache", index.getHeader("Cache-Control"));
+            Matcher script = Pattern.compile("/app/wiki\\.[0-9a-f]{10}\\.js").matcher(index.body());
+            context.assertTrue(script.find());
+            webClient.get(script.group())
+                    .putHeader("Accept-Encoding", "gzip")
+                    .send(context.asyncAssertSuccess(gzipped -> {
+                        context.assertEquals(200, gzipped.statusCode());
+                        context.assertTrue(gzipped.getHeader("Cache-Control").contains("immutable"));
+                        context.assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+                        context.assertTrue(gunzip(gzipped.body()).contains("angular.module"));
+                        webClient.get("/app/index.html")
+                                .putHeader("If-None-Match", index.getHeader("ETag"))
+                                .send(context.asyncAssertSuccess(revalidated -> {
+                                    context.assertEquals(304, revalidated.statusCode());
+                                    async.complete();
+                                }));
+                    }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void static_assets_are_gzipped_once_over_http2(TestContext context) {
+        Async async = context.async();
+        WebClient tlsClient = deployHttp2Server(context);
+        webClient.get("/app/index.html").as(BodyCodec.string()).send(context.asyncAssertSuccess(index -> {
+            Matcher script = Pattern.compile("/app/wiki\\.[0-9a-f]{10}\\.js").matcher(index.body());
+            context.assertTrue(script.find());
+            webClient.get(script.group()).as(BodyCodec.string()).send(context.asyncAssertSuccess(plain -> {
+                tlsClient.get(script.group())
+                        .putHeader("Accept-Encoding", "gzip")
+                        .send(context.asyncAssertSuccess(gzipped -> {
+                            context.assertEquals(HttpVersion.HTTP_2, gzipped.version());
+                            context.assertEquals("gzip", gzipped.getHeader("Content-Encoding"));
+                            context.assertEquals(plain.body(), gunzip(gzipped.body()));
+                            tlsClient.close();
+                            async.complete();
+                        }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void preview_sessions_end_with_their_socket(TestContext context) {
+        Async async = context.async();
+        MarkdownPreview preview = MarkdownPreview.shared(vertx, new JsonObject());
+        HttpClient client = vertx.createHttpClient();
+        client.websocket(8080, "localhost", "/eventbus/websocket", socket -> {
+            socket.handler(frame -> {
+                JsonObject reply = frame.toJsonObject().getJsonObject("body");
+                context.assertEquals(1L, reply.getLong("revision"));
+                socket.close();
+                // Once the bridge saw the socket close, the client starts over from a full rendering
+                vertx.setTimer(200, tid -> preview.submit("socket-client", 1, "# Two", context.asyncAssertSuccess(next -> {
+                    context.assertEquals(1L, next.getLong("revision"));
+                    context.assertTrue(next.getBoolean("full"));
+                    client.close();
+                    async.complete();
+                })));
+            });
+            socket.writeTextMessage(new JsonObject()
+                    .put("type", "send")
+                    .put("address", "app.markdown.preview")
+                    .put("replyAddress", "preview-reply")
+                    .put("body", new JsonObject().put("client", "socket-client").put("base", 0).put("text", "# One"))
+                    .encode());
+        }, context::fail);
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void sessions_only_on_login_routes(TestContext context) {
+        Async async = context.async();
+        webClient.get("/app/index.html").send(context.asyncAssertSuccess(staticResp -> {
+            context.assertEquals(200, staticResp.statusCode());
+            context.assertNull(staticResp.getHeader("Set-Cookie"));
+            webClient.get("/api/pages").send(context.asyncAssertSuccess(apiResp -> {
+                context.assertEquals(401, apiResp.statusCode());
+                context.assertNull(apiResp.getHeader("Set-Cookie"));
+                webClient.get("/login").send(context.asyncAssertSuccess(loginResp -> {
+                    context.assertEquals(200, loginResp.statusCode());
+                    context.assertNotNull(loginResp.getHeader("Set-Cookie"));
+                    async.complete();
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void api_authorizes_from_token_claims(TestContext context) {
+        Async async = context.async();
+        webClient.get("/api/token")
+                .putHeader("login", "bar")
+                .putHeader("password", "baz")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    webClient.get("/api/pages")
+                            .putHeader("Authorization", authorization)
+                            .send(context.asyncAssertSuccess(first -> {
+                                context.assertEquals(200, first.statusCode());
+                                webClient.post("/api/pages")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .sendJsonObject(new JsonObject()
+                                                .put("name", "Forbidden")
+                                                .put("markdown", "# No create claim"), context.asyncAssertSuccess(resp -> {
+                                            context.assertEquals(403, resp.statusCode());
+                                            context.assertFalse(resp.body().getBoolean("success"));
+                                            async.complete();
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void batch_writes_are_transactional(TestContext context) {
+        Async async = context.async();
+        webClient.get("/api/token")
+                .putHeader("login", "foo")
+                .putHeader("password", "bar")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    JsonObject batch = new JsonObject().put("create", new JsonArray()
+                            .add(new JsonObject().put("name", "BatchA").put("markdown", "# A"))
+                            .add(new JsonObject().put("name", "BatchB").put("markdown", "# B")));
+                    webClient.post("/api/pages/batch")
+                            .putHeader("Authorization", authorization)
+                            .as(BodyCodec.jsonObject())
+                            .sendJsonObject(batch, context.asyncAssertSuccess(created -> {
+                                context.assertEquals(200, created.statusCode());
+                                context.assertEquals(2, created.body().getInteger("created"));
+                                JsonObject duplicate = new JsonObject().put("create", new JsonArray()
+                                        .add(new JsonObject().put("name", "BatchC").put("markdown", "# C"))
+                                        .add(new JsonObject().put("name", "BatchA").put("markdown", "# A again")));
+                                webClient.post("/api/pages/batch")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .sendJsonObject(duplicate, context.asyncAssertSuccess(failed -> {
+                                            context.assertEquals(500, failed.statusCode());
+                                            context.assertEquals(0, failed.body().getInteger("created"));
+                                            webClient.get("/api/pages")
+                                                    .putHeader("Authorization", authorization)
+                                                    .as(BodyCodec.jsonObject())
+                                                    .send(context.asyncAssertSuccess(list -> {
+                                                        JsonArray pages = list.body().getJsonArray("pages");
+                                                        context.assertEquals(2, pages.size());
+                                                        context.assertEquals("BatchA", pages.getJsonObject(0).getString("name"));
+                                                        context.assertEquals("BatchB", pages.getJsonObject(1).getString("name"));
+                                                        async.complete();
+                                                    }));
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void page_versions_are_served_gzipped(TestContext context) {
+        Async async = context.async();
+        webClient.get("/api/token")
+                .putHeader("login", "foo")
+                .putHeader("password", "bar")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    String markdown = String.join("\n", Collections.nCopies(200, "A line of a large and repetitive wiki page"));
+                    webClient.post("/api/pages")
+                            .putHeader("Authorization", authorization)
+                            .sendJsonObject(new JsonObject().put("name", "Large").put("markdown", markdown), context.asyncAssertSuccess(created -> {
+                                webClient.get("/api/pages")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .send(context.asyncAssertSuccess(list -> {
+                                            int id = list.body().getJsonArray("pages").getJsonObject(0).getInteger("id");
+                                            webClient.get("/api/pages/" + id)
+                                                    .putHeader("Authorization", authorization)
+                                                    .putHeader("Accept-Encoding", "gzip")
+                                                    .send(context.asyncAssertSuccess(first -> {
+                                                        context.assertEquals(200, first.statusCode());
+                                                        context.assertEquals("gzip", first.getHeader("Content-Encoding"));
+                                                        context.assertTrue(first.body().length() * 5 < markdown.length());
+                                                        JsonObject page = new JsonObject(gunzip(first.body())).getJsonObject("page");
+                                                        context.assertEquals(markdown, page.getString("markdown"));
+                                                        webClient.get("/api/pages/" + id)
+                                                                .putHeader("Authorization", authorization)
+                                                                .putHeader("Accept-Encoding", "gzip")
+                                                                .send(context.asyncAssertSuccess(second -> {
+                                                                    // Compressed once for the version, then served as is
+                                                                    context.assertEquals(first.body(), second.body());
+                                                                    webClient.get("/api/pages/" + id)
+                                                                            .putHeader("Authorization", authorization)
+                                                                            .as(BodyCodec.jsonObject())
+                                                                            .send(context.asyncAssertSuccess(plain -> {
+                                                                                context.assertNull(plain.getHeader("Content-Encoding"));
+                                                                                context.assertEquals(markdown, plain.body().getJsonObject("page").getString("markdown"));
+                                                                                async.complete();
+                                                                            }));
+                                                                }));
+                                                    }));
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
+    /*
+     * Deploys a server with TLS, HTTP/2 and the default compression, and returns an HTTP/2 client of it.
+     */
+    private WebClient deployHttp2Server(TestContext context) {
+        JsonObject conf = new JsonObject()
+                .put(HttpServerVerticle.CONFIG_HTTP_SERVER_PORT, 8443)
+                .put(HttpServerVerticle.CONFIG_HTTP_SERVER_SSL, true);
+        Async deployed = context.async();
+        vertx.deployVerticle(new HttpServerVerticle(), new DeploymentOptions().setConfig(conf), context.asyncAssertSuccess(id -> deployed.complete()));
+        deployed.awaitSuccess(5000);
+        return WebClient.create(vertx, new WebClientOptions()
+                .setDefaultHost("localhost")
+                .setDefaultPort(8443)
+                .setSsl(true)
+                .setUseAlpn(true)
+                .setProtocolVersion(HttpVersion.HTTP_2)
+                .setTrustOptions(new JksOptions().setPath("server-keystore.jks").setPassword("secret4321")));
+    }
+    
+    private static String gunzip(Buffer gzipped) {
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(gzipped.getBytes()))) {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int read = in.read(chunk); read != -1; read = in.read(chunk)) {
+                out.write(chunk, 0, read);
+            }
+            return new String(out.toByteArray(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Test
+    public void import_streams_ndjson_pages(TestContext context) {
+        Async async = context.async();
+        Buffer upload = Buffer.buffer()
+                .appendString(new JsonObject().put("name", "ImportA").put("markdown", "# A").encode() + "\n")
+                .appendString("\n")
+                .appendString(new JsonObject().put("name", "ImportB").put("content", "# B").encode() + "\n")
+                .appendString(new JsonObject().put("name", "ImportC").put("markdown", "# C").encode());
+        webClient.get("/api/token")
+                .putHeader("login", "foo")
+                .putHeader("password", "bar")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    webClient.post("/api/pages/import")
+                            .putHeader("Authorization", authorization)
+                            .as(BodyCodec.jsonObject())
+                            .sendBuffer(upload, context.asyncAssertSuccess(imported -> {
+                                context.assertEquals(200, imported.statusCode());
+                                context.assertEquals(3L, imported.body().getLong("imported"));
+                                webClient.post("/api/pages/import")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .sendBuffer(Buffer.buffer("{\"name\": \"ImportD\", \"markdown\": \"# D\"}\n{oops\n"), context.asyncAssertSuccess(bad -> {
+                                            context.assertEquals(400, bad.statusCode());
+                                            context.assertEquals("Bad JSON page on line 2", bad.body().getString("error"));
+                                            webClient.get("/api/pages")
+                                                    .putHeader("Authorization", authorization)
+                                                    .as(BodyCodec.jsonObject())
+                                                    .send(context.asyncAssertSuccess(list -> {
+                                                        context.assertEquals(3, list.body().getJsonArray("pages").size());
+                                                        async.complete();
+                                                    }));
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void import_keeps_an_unterminated_last_line(TestContext context) {
+        Async async = context.async();
+        webClient.get("/api/token")
+                .putHeader("login", "foo")
+                .putHeader("password", "bar")
+                .as(BodyCodec.string())
+                .send(context.asyncAssertSuccess(tokenResponse -> {
+                    String authorization = "Bearer " + tokenResponse.body();
+                    Buffer upload = Buffer.buffer(new JsonObject().put("name", "Unterminated").put("markdown", "# U").encode());
+                    webClient.post("/api/pages/import")
+                            .putHeader("Authorization", authorization)
+                            .as(BodyCodec.jsonObject())
+                            .sendBuffer(upload, context.asyncAssertSuccess(imported -> {
+                                context.assertEquals(200, imported.statusCode());
+                                context.assertEquals(1L, imported.body().getLong("imported"));
+                                webClient.get("/api/pages")
+                                        .putHeader("Authorization", authorization)
+                                        .as(BodyCodec.jsonObject())
+                                        .send(context.asyncAssertSuccess(list -> {
+                                            JsonArray pages = list.body().getJsonArray("pages");
+                                            context.assertEquals(1, pages.size());
+                                            context.assertEquals("Unterminated", pages.getJsonObject(0).getString("name"));
+                                            async.complete();
+                                        }));
+                            }));
+                }));
+        async.awaitSuccess(5000);
+    }
+    
     @Test
     public void play_with_api(TestContext context) {
         Async async = context.async();
@@ -131,11 +550,24 @@ public class ApiTest {
             return promise.future();
         });
 
-        Future<HttpResponse<JsonObject>> updatePageFuture = getPageFuture.compose(resp -> {
+        Future<HttpResponse<JsonObject>> getPagesPageFuture = getPageFuture.compose(resp -> {
             JsonArray array = resp.body().getJsonArray("pages");
             context.assertEquals(1, array.size());
             context.assertEquals(0, array.getJsonObject(0).getInteger("id"));
             Promise<HttpResponse<JsonObject>> promise = Promise.promise();
+            webClient.get("/api/pages?limit=10")
+                    .putHeader("Authorization", jwtTokenHeaderValue)
+                    .as(BodyCodec.jsonObject())
+                    .send(promise);
+            return promise.future();
+        });
+
+        Future<HttpResponse<JsonObject>> updatePageFuture = getPagesPageFuture.compose(resp -> {
+            JsonArray array = resp.body().getJsonArray("pages");
+            context.assertEquals(1, array.size());
+            context.assertEquals("Sample", array.getJsonObject(0).getString("name"));
+            context.assertFalse(resp.body().containsKey("next"));
+            Promise<HttpResponse<JsonObject>> promise = Promise.promise();
             JsonObject data = new JsonObject()
                     .put("id", 0)
                     .put("markdown", "Oh Yeah!");
@@ -146,9 +578,31 @@ public class ApiTest {
             return promise.future();
         });
 
-        Future<HttpResponse<JsonObject>> deletePageFuture = updatePageFuture.compose(resp -> {
+        Future<HttpResponse<JsonObject>> getUpdatedPageFuture = updatePageFuture.compose(resp -> {
             context.assertTrue(resp.body().getBoolean("success"));
             Promise<HttpResponse<JsonObject>> promise = Promise.promise();
+            webClient.get("/api/pages/0")
+                    .putHeader("Authorization", jwtTokenHeaderValue)
+                    .as(BodyCodec.jsonObject())
+                    .send(promise);
+            return promise.future();
+        });
+
+        Future<HttpResponse<Buffer>> notModifiedFuture = getUpdatedPageFuture.compose(resp -> {
+            context.assertEquals(200, resp.statusCode());
+            context.assertNotNull(resp.getHeader("ETag"));
+            context.assertNotNull(resp.getHeader("Last-Modified"));
+            Promise<HttpResponse<Buffer>> promise = Promise.promise();
+            webClient.get("/api/pages/0")
+                    .putHeader("Authorization", jwtTokenHeaderValue)
+                    .putHeader("If-None-Match", resp.getHeader("ETag"))
+                    .send(promise);
+            return promise.future();
+        });
+
+        Future<HttpResponse<JsonObject>> deletePageFuture = notModifiedFuture.compose(resp -> {
+            context.assertEquals(304, resp.statusCode());
+            Promise<HttpResponse<JsonObject>> promise = Promise.promise();
             webClient.delete("/api/pages/0")
                     .putHeader("Authorization", jwtTokenHeaderValue)
                     .as(BodyCodec.jsonObject())
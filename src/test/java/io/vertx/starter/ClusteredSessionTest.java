@@ -0,0 +1,142 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter;
+
+import com.hazelcast.config.Config;
+import com.hazelcast.config.InterfacesConfig;
+import com.hazelcast.config.JoinConfig;
+import com.hazelcast.config.TcpIpConfig;
+import io.vertx.core.DeploymentOptions;
+import io.vertx.core.MultiMap;
+import io.vertx.core.Vertx;
+import io.vertx.core.VertxOptions;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.ext.web.client.WebClient;
+import io.vertx.ext.web.client.WebClientOptions;
+import io.vertx.spi.cluster.hazelcast.ConfigUtil;
+import io.vertx.spi.cluster.hazelcast.HazelcastClusterManager;
+import io.vertx.starter.database.WikiDatabaseVerticle;
+import io.vertx.starter.http.AuthInitializerVerticle;
+import io.vertx.starter.http.HttpServerVerticle;
+import io.vertx.starter.http.WikiUser;
+import io.vertx.starter.search.SearchIndex;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Two wiki nodes in one embedded cluster, joined over localhost only.
+ *
+ * @author nghiatc
+ * @since Oct 16, 2019
+ */
+@RunWith(VertxUnitRunner.class)
+public class ClusteredSessionTest {
+    private Vertx node1;
+    private Vertx node2;
+
+    @Before
+    public void prepare(TestContext context) {
+        Async async = context.async();
+        JsonObject dbConf = new JsonObject()
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL, "jdbc:hsqldb:mem:testdb;shutdown=true")
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4)
+                .put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, "");
+        JsonObject httpConf = dbConf.copy()
+                .put(HttpServerVerticle.CONFIG_HTTP_SESSION_STORE, "clustered");
+
+        Vertx.clusteredVertx(localClusterOptions(), context.asyncAssertSuccess(v1 -> {
+            node1 = v1;
+            Vertx.clusteredVertx(localClusterOptions(), context.asyncAssertSuccess(v2 -> {
+                node2 = v2;
+                node1.deployVerticle(new AuthInitializerVerticle(), new DeploymentOptions().setConfig(dbConf), context.asyncAssertSuccess(auth -> {
+                    node1.deployVerticle(new WikiDatabaseVerticle(), new DeploymentOptions().setConfig(dbConf), context.asyncAssertSuccess(db -> {
+                        node1.deployVerticle(new HttpServerVerticle(), new DeploymentOptions()
+                                .setConfig(httpConf.copy().put(HttpServerVerticle.CONFIG_HTTP_SERVER_PORT, 8080)), context.asyncAssertSuccess(http1 -> {
+                            node2.deployVerticle(new HttpServerVerticle(), new DeploymentOptions()
+                                    .setConfig(httpConf.copy().put(HttpServerVerticle.CONFIG_HTTP_SERVER_PORT, 8081)), context.asyncAssertSuccess(http2 -> {
+                                async.complete();
+                            }));
+                        }));
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(60000);
+    }
+
+    private static VertxOptions localClusterOptions() {
+        Config hazelcast = ConfigUtil.loadConfig();
+        hazelcast.setProperty("hazelcast.wait.seconds.before.join", "0");
+        hazelcast.getNetworkConfig().setInterfaces(new InterfacesConfig().setEnabled(true).addInterface("127.0.0.1"));
+        JoinConfig join = hazelcast.getNetworkConfig().getJoin();
+        join.getMulticastConfig().setEnabled(false);
+        join.setTcpIpConfig(new TcpIpConfig().setEnabled(true).addMember("127.0.0.1"));
+        VertxOptions options = new VertxOptions().setClusterManager(new HazelcastClusterManager(hazelcast));
+        options.getEventBusOptions().setHost("127.0.0.1");
+        return options;
+    }
+
+    @After
+    public void finish(TestContext context) {
+        if (node2 != null) {
+            node2.close(context.asyncAssertSuccess());
+        }
+        if (node1 != null) {
+            node1.close(context.asyncAssertSuccess());
+        }
+    }
+
+    @Test
+    public void session_is_shared_between_nodes(TestContext context) {
+        Async async = context.async();
+        WebClient webClient = WebClient.create(node1, new WebClientOptions()
+                .setDefaultHost("localhost")
+                .setFollowRedirects(false));
+        webClient.post(8080, "localhost", "/login-auth")
+                .sendForm(MultiMap.caseInsensitiveMultiMap()
+                        .add("username", "foo")
+                        .add("password", "bar"), context.asyncAssertSuccess(login -> {
+                    context.assertFalse(login.cookies().isEmpty());
+                    String sessionCookie = login.cookies().get(0).split(";")[0];
+                    webClient.get(8081, "localhost", "/index")
+                            .putHeader("Cookie", sessionCookie)
+                            .send(context.asyncAssertSuccess(index -> {
+                                context.assertEquals(200, index.statusCode());
+                                context.assertTrue(index.bodyAsString().contains("foo"));
+                                async.complete();
+                            }));
+                }));
+        async.awaitSuccess(30000);
+    }
+
+    @Test
+    public void session_user_is_compact(TestContext context) {
+        Buffer buffer = Buffer.buffer();
+        new WikiUser("foo", null).writeToBuffer(buffer);
+        context.assertEquals(7, buffer.length());
+
+        WikiUser read = new WikiUser();
+        context.assertEquals(7, read.readFromBuffer(0, buffer));
+        context.assertEquals("foo", read.principal().getString("username"));
+    }
+}
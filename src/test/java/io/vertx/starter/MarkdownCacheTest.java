@@ -0,0 +1,149 @@
+/*
+ * Copyright 2019 nghiatc.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package io.vertx.starter;
+
+import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonObject;
+import io.vertx.ext.unit.Async;
+import io.vertx.ext.unit.TestContext;
+import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.starter.markdown.MarkdownBlocks;
+import io.vertx.starter.markdown.MarkdownCache;
+import io.vertx.starter.markdown.MarkdownPreview;
+import io.vertx.starter.markdown.MarkdownRenderException;
+import io.vertx.starter.markdown.MarkdownRenderer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ *
+ * @author nghiatc
+ * @since Oct 14, 2019
+ *
+ * cd ~/lab/labVertx/ntc-vertx-wiki
+ * mvn test
+ */
+@RunWith(VertxUnitRunner.class)
+public class MarkdownCacheTest {
+    private Vertx vertx;
+
+    @Before
+    public void prepare(TestContext context) {
+        vertx = Vertx.vertx();
+    }
+
+    @After
+    public void finish(TestContext context) {
+        vertx.close(context.asyncAssertSuccess());
+    }
+
+    @Test
+    public void cache_is_shared_and_bounded(TestContext context) {
+        JsonObject conf = new JsonObject().put(MarkdownCache.CONFIG_MARKDOWN_CACHE_MAX_ENTRIES, 2);
+        MarkdownCache cache = MarkdownCache.shared(vertx, conf);
+        context.assertTrue(cache == MarkdownCache.shared(vertx, new JsonObject()));
+
+        String html = cache.render(1, "# Title");
+        context.assertTrue(html.contains("<h1>Title</h1>"));
+        context.assertEquals(html, cache.get(1, "# Title"));
+        context.assertNull(cache.get(1, "# Other title"));
+        // Same length and hash code, still another content
+        cache.render(1, "Aa");
+        context.assertNull(cache.get(1, "BB"));
+
+        cache.render(2, "two");
+        cache.render(3, "three");
+        context.assertEquals(2, cache.size());
+        context.assertNull(cache.get(1, "# Title"));
+
+        cache.invalidate(3);
+        context.assertNull(cache.get(3, "three"));
+        context.assertEquals(1, cache.size());
+    }
+
+    @Test
+    public void renderer_limits(TestContext context) {
+        Async async = context.async();
+        JsonObject conf = new JsonObject()
+                .put(MarkdownRenderer.CONFIG_MARKDOWN_RENDERER_MAX_CHARS, 16)
+                .put(MarkdownRenderer.CONFIG_MARKDOWN_RENDERER_QUEUE_SIZE, 1);
+        MarkdownRenderer renderer = MarkdownRenderer.shared(vertx, conf);
+        vertx.runOnContext(v -> {
+            renderer.render("This text is longer than the limit", context.asyncAssertFailure(tooLarge -> {
+                context.assertEquals(413, ((MarkdownRenderException) tooLarge).statusCode());
+                renderer.render("*first*", context.asyncAssertSuccess(html -> {
+                    context.assertEquals("<p><em>first</em></p>\n", html);
+                    async.complete();
+                }));
+                renderer.render("*second*", context.asyncAssertFailure(saturated -> {
+                    context.assertEquals(503, ((MarkdownRenderException) saturated).statusCode());
+                }));
+            }));
+        });
+        async.awaitSuccess(5000);
+    }
+
+    @Test
+    public void preview_patches_changed_blocks(TestContext context) {
+        Async async = context.async();
+        context.assertEquals(3, MarkdownBlocks.split("# Title\n\nFirst\n\n```\ncode\n\nmore\n```\n").size());
+        context.assertEquals(1, MarkdownBlocks.split("[a]: http://a\n\nSee [a]\n").size());
+
+        MarkdownPreview preview = MarkdownPreview.shared(vertx, new JsonObject());
+        preview.preview("client", 0, "# Title\n\nFirst\n\nSecond\n", context.asyncAssertSuccess(first -> {
+            context.assertTrue(first.getBoolean("full"));
+            context.assertEquals(3, first.getJsonArray("blocks").size());
+            long revision = first.getLong("revision");
+            preview.preview("client", revision, "# Title\n\nFirst edited\n\nSecond\n", context.asyncAssertSuccess(second -> {
+                context.assertFalse(second.getBoolean("full"));
+                context.assertEquals(revision, second.getLong("base"));
+                context.assertEquals(1, second.getInteger("start"));
+                context.assertEquals(1, second.getInteger("deleteCount"));
+                context.assertEquals("<p>First edited</p>\n", second.getJsonArray("blocks").getString(0));
+                async.complete();
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+
+    @Test
+    public void preview_requests_are_coalesced(TestContext context) {
+        Async async = context.async(3);
+        MarkdownPreview preview = MarkdownPreview.shared(vertx, new JsonObject());
+        // Submitted from one event loop task, so the first render cannot complete in between
+        vertx.runOnContext(v -> {
+            preview.submit("client", 0, "one", context.asyncAssertSuccess(first -> {
+                context.assertEquals(1L, first.getLong("revision"));
+                async.countDown();
+            }));
+            preview.submit("client", 0, "two", context.asyncAssertSuccess(second -> {
+                context.assertTrue(second.getBoolean("superseded"));
+                async.countDown();
+            }));
+            preview.submit("client", 0, "three", context.asyncAssertSuccess(third -> {
+                context.assertEquals(2L, third.getLong("revision"));
+                context.assertEquals(1L, third.getLong("base"));
+                context.assertFalse(third.getBoolean("full"));
+                context.assertEquals("<p>three</p>\n", third.getJsonArray("blocks").getString(0));
+                async.countDown();
+            }));
+        });
+        async.awaitSuccess(5000);
+    }
+}
@@ -18,12 +18,31 @@ package io.vertx.starter;
 
 import io.vertx.core.DeploymentOptions;
 import io.vertx.core.Vertx;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
+import io.vertx.ext.jdbc.JDBCClient;
 import io.vertx.ext.unit.Async;
 import io.vertx.ext.unit.TestContext;
 import io.vertx.ext.unit.junit.VertxUnitRunner;
+import io.vertx.starter.backup.ArchiveBackupSink;
+import io.vertx.starter.backup.WikiBackup;
+import io.vertx.starter.database.DatabaseMetrics;
+import io.vertx.starter.database.PageStream;
 import io.vertx.starter.database.WikiDatabaseService;
 import io.vertx.starter.database.WikiDatabaseVerticle;
+import io.vertx.starter.search.SearchIndex;
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
@@ -59,9 +78,13 @@ public class SomeTest {
         vertx = Vertx.vertx();
         JsonObject conf = new JsonObject()
                 .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL, "jdbc:hsqldb:mem:testdb;shutdown=true")
-                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4);
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4)
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_REVISIONS_SNAPSHOT_INTERVAL, 3)
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_CURSOR_MAX_OPEN, 2)
+                .put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, "");
 
-        vertx.deployVerticle(new WikiDatabaseVerticle(), new DeploymentOptions().setConfig(conf),
+        // Several worker instances, so that the calls of a test are spread over them
+        vertx.deployVerticle(WikiDatabaseVerticle.class, new DeploymentOptions().setConfig(conf).setWorker(true).setInstances(3),
                 context.asyncAssertSuccess(id -> service = WikiDatabaseService.createProxy(vertx, WikiDatabaseVerticle.CONFIG_WIKIDB_QUEUE)));
     }
     
@@ -78,11 +101,15 @@ public class SomeTest {
                 context.assertTrue(json1.getBoolean("found"));
                 context.assertTrue(json1.containsKey("id"));
                 context.assertEquals("Some content", json1.getString("rawContent"));
+                context.assertEquals("<p>Some content</p>\n", json1.getString("html"));
                 service.savePage(json1.getInteger("id"), "Yo!", context.asyncAssertSuccess(v2 -> {
                     service.fetchAllPages(context.asyncAssertSuccess(array1 -> {
                         context.assertEquals(1, array1.size());
                         service.fetchPage("Test", context.asyncAssertSuccess(json2 -> {
                             context.assertEquals("Yo!", json2.getString("rawContent"));
+                            context.assertEquals("<p>Yo!</p>\n", json2.getString("html"));
+                            context.assertEquals(json1.getInteger("version") + 1, json2.getInteger("version"));
+                            context.assertTrue(json2.getLong("modified") >= json1.getLong("modified"));
                             service.deletePage(json1.getInteger("id"), v3 -> {
                                 service.fetchAllPages(context.asyncAssertSuccess(array2 -> {
                                     context.assertTrue(array2.isEmpty());
@@ -97,4 +124,367 @@ public class SomeTest {
         async.awaitSuccess(5000);
     }
     
+    @Test
+    public void keyset_pagination(TestContext context) {
+        Async async = context.async();
+        service.createPage("C", "c", context.asyncAssertSuccess(v1 -> {
+            service.createPage("A", "a", context.asyncAssertSuccess(v2 -> {
+                service.createPage("B", "b", context.asyncAssertSuccess(v3 -> {
+                    service.fetchPageSummaries(null, 2, context.asyncAssertSuccess(first -> {
+                        context.assertEquals(2, first.getJsonArray("pages").size());
+                        context.assertEquals("A", first.getJsonArray("pages").getJsonObject(0).getString("name"));
+                        context.assertEquals("B", first.getString("next"));
+                        service.fetchPageSummaries(first.getString("next"), 2, context.asyncAssertSuccess(second -> {
+                            context.assertEquals(1, second.getJsonArray("pages").size());
+                            context.assertEquals("C", second.getJsonArray("pages").getJsonObject(0).getString("name"));
+                            context.assertFalse(second.containsKey("next"));
+                            service.fetchAllPageSummaries(context.asyncAssertSuccess(all -> {
+                                context.assertEquals(3, all.size());
+                                context.assertEquals(new JsonObject().put("id", all.get(0).getInteger("id")).put("name", "A"), all.get(0));
+                                async.complete();
+                            }));
+                        }));
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void page_stream_reads_chunks(TestContext context) {
+        Async created = context.async(5);
+        for (int i = 0; i < 5; i++) {
+            service.createPage("Page" + i, "content " + i, context.asyncAssertSuccess(v -> created.countDown()));
+        }
+        created.awaitSuccess(5000);
+        
+        Async async = context.async();
+        List<String> names = new ArrayList<>();
+        PageStream stream = new PageStream(service, 2);
+        stream.exceptionHandler(context::fail)
+                .endHandler(v -> {
+                    // Created concurrently, the ids do not follow the names
+                    Collections.sort(names);
+                    context.assertEquals(Arrays.asList("Page0", "Page1", "Page2", "Page3", "Page4"), names);
+                    service.fetchPagesChunk("unknown", context.asyncAssertFailure(err -> async.complete()));
+                })
+                .handler(page -> {
+                    context.assertEquals("content " + page.getString("name").substring(4), page.getString("content"));
+                    names.add(page.getString("name"));
+                    // Back pressure: the next page is only delivered once resumed
+                    stream.pause();
+                    vertx.setTimer(5, tid -> stream.resume());
+                });
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void open_cursors_are_limited(TestContext context) {
+        Async async = context.async();
+        List<String> opened = Collections.synchronizedList(new ArrayList<>());
+        Async attempts = context.async(4);
+        // Opened at once on several instances, only as many as allowed get a connection
+        for (int i = 0; i < 4; i++) {
+            service.openPagesCursor(0, 10, ar -> {
+                if (ar.succeeded()) {
+                    opened.add(ar.result());
+                }
+                attempts.countDown();
+            });
+        }
+        attempts.handler(done -> {
+            context.assertEquals(2, opened.size());
+            service.closePagesCursor(opened.get(0), context.asyncAssertSuccess(closed -> {
+                service.openPagesCursor(0, 10, context.asyncAssertSuccess(reopened -> async.complete()));
+            }));
+        });
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void calls_are_spread_over_instances(TestContext context) {
+        Async fetched = context.async(6);
+        for (int i = 0; i < 6; i++) {
+            service.fetchAllPages(context.asyncAssertSuccess(pages -> fetched.countDown()));
+        }
+        fetched.awaitSuccess(5000);
+        
+        Async async = context.async();
+        vertx.eventBus().<JsonObject>request(DatabaseMetrics.ADDRESS, null, context.asyncAssertSuccess(reply -> {
+            JsonObject instances = reply.body().getJsonObject("instances");
+            context.assertEquals(3, instances.size());
+            for (String instance : instances.fieldNames()) {
+                context.assertEquals(2L, instances.getJsonObject(instance).getJsonObject("actions").getLong("fetchAllPages"));
+            }
+            async.complete();
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void local_proxy_calls_instances_directly(TestContext context) {
+        WikiDatabaseService local = WikiDatabaseService.createLocalProxy(vertx, WikiDatabaseVerticle.CONFIG_WIKIDB_QUEUE);
+        Async created = context.async();
+        local.createPage("Local", "# Local", context.asyncAssertSuccess(v -> {
+            service.fetchAllPages(context.asyncAssertSuccess(pages -> {
+                context.assertTrue(pages.contains("Local"));
+                created.complete();
+            }));
+        }));
+        created.awaitSuccess(5000);
+        
+        Async fetched = context.async(6);
+        for (int i = 0; i < 6; i++) {
+            local.fetchPage("Local", context.asyncAssertSuccess(page -> {
+                context.assertEquals("# Local", page.getString("rawContent"));
+                fetched.countDown();
+            }));
+        }
+        fetched.awaitSuccess(5000);
+        
+        Async async = context.async();
+        vertx.eventBus().<JsonObject>request(DatabaseMetrics.ADDRESS, null, context.asyncAssertSuccess(reply -> {
+            JsonObject instances = reply.body().getJsonObject("instances");
+            for (String instance : instances.fieldNames()) {
+                context.assertEquals(2L, instances.getJsonObject(instance).getJsonObject("actions").getLong("fetchPage"), instance);
+            }
+            async.complete();
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void catalog_follows_page_writes(TestContext context) {
+        Async async = context.async();
+        List<JsonObject> pages = Arrays.asList(
+                new JsonObject().put("name", "Apricot").put("markdown", "b"),
+                new JsonObject().put("name", "Apple").put("markdown", "a"),
+                new JsonObject().put("name", "Banana").put("markdown", "c"));
+        service.createPages(pages, context.asyncAssertSuccess(created -> {
+            service.fetchPageSummariesWithPrefix("Ap", 10, context.asyncAssertSuccess(ap -> {
+                context.assertEquals(2, ap.size());
+                context.assertEquals("Apple", ap.get(0).getString("name"));
+                context.assertEquals("Apricot", ap.get(1).getString("name"));
+                service.deletePage(ap.get(0).getInteger("id"), context.asyncAssertSuccess(deleted -> {
+                    service.fetchAllPages(context.asyncAssertSuccess(names -> {
+                        context.assertEquals(new JsonArray().add("Apricot").add("Banana"), names);
+                        service.fetchPageSummaries("Apricot", 1, context.asyncAssertSuccess(after -> {
+                            context.assertEquals("Banana", after.getJsonArray("pages").getJsonObject(0).getString("name"));
+                            context.assertFalse(after.containsKey("next"));
+                            async.complete();
+                        }));
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void search_follows_page_writes(TestContext context) {
+        Async async = context.async();
+        service.createPage("Verticles", "A verticle runs on an event loop", context.asyncAssertSuccess(a -> {
+            service.createPage("Pools", "Worker verticles run on a worker pool, not on the event loop", context.asyncAssertSuccess(b -> {
+                service.searchPages("verticles", 0, 10, context.asyncAssertSuccess(found -> {
+                    context.assertEquals(2, found.getInteger("total"));
+                    // Name matches rank first
+                    context.assertEquals("Verticles", found.getJsonArray("results").getJsonObject(0).getString("name"));
+                    int poolsId = found.getJsonArray("results").getJsonObject(1).getInteger("id");
+                    service.savePage(poolsId, "Blocking code goes to a worker pool", context.asyncAssertSuccess(saved -> {
+                        service.searchPages("loop", 0, 10, context.asyncAssertSuccess(loop -> {
+                            context.assertEquals(1, loop.getInteger("total"));
+                            service.deletePage(poolsId, context.asyncAssertSuccess(deleted -> {
+                                service.searchPages("worker pool", 0, 10, context.asyncAssertSuccess(pool -> {
+                                    context.assertEquals(0, pool.getInteger("total"));
+                                    async.complete();
+                                }));
+                            }));
+                        }));
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void revisions_rebuild_every_version(TestContext context) {
+        List<String> contents = Arrays.asList(
+                "# History\nFirst draft",
+                "# History\nFirst draft, reviewed",
+                "# Story \uD83D\uDCD6\nFirst draft, reviewed",
+                "# Story \uD83D\uDCD7\nFirst draft, reviewed",
+                "",
+                "Rewritten from scratch");
+        Async async = context.async();
+        service.createPage("History", contents.get(0), context.asyncAssertSuccess(created -> {
+            service.fetchPage("History", context.asyncAssertSuccess(page -> {
+                int id = page.getInteger("id");
+                saveAll(context, id, contents.subList(1, contents.size()), () -> {
+                    service.fetchPageRevisions(id, context.asyncAssertSuccess(revisions -> {
+                        context.assertEquals(contents.size(), revisions.size());
+                        context.assertEquals(contents.size(), revisions.get(0).getInteger("version"));
+                        // One snapshot every 3 versions
+                        List<Integer> snapshots = revisions.stream()
+                                .filter(revision -> revision.getBoolean("snapshot"))
+                                .map(revision -> revision.getInteger("version"))
+                                .collect(Collectors.toList());
+                        context.assertEquals(Arrays.asList(4, 1), snapshots);
+                        checkRevisions(context, id, contents, 1, () -> {
+                            service.fetchPageRevision(id, contents.size() + 1, context.asyncAssertSuccess(missing -> {
+                                context.assertFalse(missing.getBoolean("found"));
+                                service.deletePage(id, context.asyncAssertSuccess(deleted -> {
+                                    service.fetchPageRevisions(id, context.asyncAssertSuccess(none -> {
+                                        context.assertTrue(none.isEmpty());
+                                        async.complete();
+                                    }));
+                                }));
+                            }));
+                        });
+                    }));
+                });
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    @Test
+    public void batch_saves_store_deltas(TestContext context) {
+        List<String> contents = Arrays.asList("Nightly\nsync", "Nightly\nsync, once", "Nightly\nsync, twice");
+        Async async = context.async();
+        service.createPage("Nightly", contents.get(0), context.asyncAssertSuccess(created -> {
+            service.fetchPage("Nightly", context.asyncAssertSuccess(page -> {
+                int id = page.getInteger("id");
+                List<JsonObject> batch = Arrays.asList(
+                        new JsonObject().put("id", id).put("markdown", contents.get(1)),
+                        new JsonObject().put("id", id).put("markdown", contents.get(2)));
+                service.savePages(batch, context.asyncAssertSuccess(saved -> {
+                    service.fetchPageRevisions(id, context.asyncAssertSuccess(revisions -> {
+                        context.assertEquals(3, revisions.size());
+                        context.assertEquals(1L, revisions.stream().filter(revision -> revision.getBoolean("snapshot")).count());
+                        checkRevisions(context, id, contents, 1, async::complete);
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    private void saveAll(TestContext context, int id, List<String> contents, Runnable next) {
+        if (contents.isEmpty()) {
+            next.run();
+            return;
+        }
+        service.savePage(id, contents.get(0), context.asyncAssertSuccess(saved -> saveAll(context, id, contents.subList(1, contents.size()), next)));
+    }
+    
+    private void checkRevisions(TestContext context, int id, List<String> contents, int version, Runnable next) {
+        if (version > contents.size()) {
+            next.run();
+            return;
+        }
+        service.fetchPageRevision(id, version, context.asyncAssertSuccess(revision -> {
+            context.assertTrue(revision.getBoolean("found"));
+            context.assertEquals(contents.get(version - 1), revision.getString("content"));
+            checkRevisions(context, id, contents, version + 1, next);
+        }));
+    }
+    
+    @Test
+    public void search_index_is_saved_and_loaded(TestContext context) {
+        JsonObject conf = new JsonObject().put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, "target/search-index-" + System.nanoTime() + ".ndjson.gz");
+        Vertx first = Vertx.vertx();
+        SearchIndex index = SearchIndex.shared(first, conf);
+        index.put(1, "Alpha", "first page", 10);
+        index.put(2, "Beta", "second page", 20);
+        index.save();
+        first.close();
+
+        Vertx second = Vertx.vertx();
+        SearchIndex loaded = SearchIndex.shared(second, conf);
+        loaded.load();
+        context.assertEquals(20L, loaded.versions().get(2));
+        JsonObject found = loaded.search("second", 0, 10);
+        context.assertEquals(1, found.getInteger("total"));
+        context.assertEquals("Beta", found.getJsonArray("results").getJsonObject(0).getString("name"));
+        context.assertEquals(2, loaded.search("page", 1, 10).getInteger("total"));
+        context.assertEquals(1, loaded.search("page", 1, 10).getJsonArray("results").size());
+        second.close();
+    }
+    
+    @Test
+    public void search_index_keeps_the_latest_version(TestContext context) {
+        Vertx other = Vertx.vertx();
+        SearchIndex index = SearchIndex.shared(other, new JsonObject().put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, ""));
+        index.put(1, "Alpha", "newer text", 20);
+        index.put(1, "Alpha", "older text", 10);
+        context.assertEquals(20L, index.versions().get(1));
+        context.assertEquals(1, index.search("newer", 0, 10).getInteger("total"));
+        context.assertEquals(0, index.search("older", 0, 10).getInteger("total"));
+        other.close();
+    }
+    
+    @Test
+    public void incremental_archive_backup(TestContext context) {
+        Async created = context.async();
+        service.createPage("A", "a", context.asyncAssertSuccess(a -> {
+            service.createPage("B", "b", context.asyncAssertSuccess(b -> created.complete()));
+        }));
+        created.awaitSuccess(5000);
+        
+        Async async = context.async();
+        String dir = "target/test-backups-" + System.nanoTime();
+        WikiBackup backup = new WikiBackup(vertx, service, new ArchiveBackupSink(vertx, dir), dir);
+        backup.run(false, context.asyncAssertSuccess(full -> {
+            context.assertEquals(Arrays.asList("A", "B"), archivedPages(full));
+            service.fetchPage("B", context.asyncAssertSuccess(page -> {
+                vertx.setTimer(5, tid -> service.savePage(page.getInteger("id"), "b2", context.asyncAssertSuccess(v -> {
+                    backup.run(true, context.asyncAssertSuccess(incremental -> {
+                        context.assertTrue(incremental.endsWith("-incremental.ndjson.gz"));
+                        context.assertEquals(Arrays.asList("B"), archivedPages(incremental));
+                        async.complete();
+                    }));
+                })));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
+    private static List<String> archivedPages(String path) {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(new GZIPInputStream(new FileInputStream(path)), StandardCharsets.UTF_8))) {
+            return reader.lines().map(line -> new JsonObject(line).getString("name")).collect(Collectors.toList());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+    
+    @Test
+    public void legacy_schema_migration(TestContext context) {
+        Async async = context.async();
+        Vertx legacyVertx = Vertx.vertx();
+        JsonObject conf = new JsonObject()
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL, "jdbc:hsqldb:mem:legacydb;shutdown=true")
+                .put(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_MAX_POOL_SIZE, 4)
+                .put(SearchIndex.CONFIG_SEARCH_INDEX_FILE, "");
+        JDBCClient legacyClient = JDBCClient.createShared(legacyVertx, new JsonObject()
+                .put("url", conf.getString(WikiDatabaseVerticle.CONFIG_WIKIDB_JDBC_URL))
+                .put("driver_class", "org.hsqldb.jdbcDriver"));
+        legacyClient.getConnection(context.asyncAssertSuccess(connection -> {
+            connection.batch(Arrays.asList(
+                    "create table Pages (Id integer identity primary key, Name varchar(255) unique, Content clob)",
+                    "insert into Pages values (NULL, 'Legacy', '# Old page')"), context.asyncAssertSuccess(done -> {
+                legacyVertx.deployVerticle(new WikiDatabaseVerticle(), new DeploymentOptions().setConfig(conf), context.asyncAssertSuccess(id -> {
+                    WikiDatabaseService legacyService = WikiDatabaseService.createProxy(legacyVertx, WikiDatabaseVerticle.CONFIG_WIKIDB_QUEUE);
+                    legacyService.fetchPage("Legacy", context.asyncAssertSuccess(json -> {
+                        context.assertEquals("<h1>Old page</h1>\n", json.getString("html"));
+                        connection.close();
+                        legacyVertx.close(context.asyncAssertSuccess(v -> async.complete()));
+                    }));
+                }));
+            }));
+        }));
+        async.awaitSuccess(5000);
+    }
+    
 }